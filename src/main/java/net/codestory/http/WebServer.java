@@ -15,11 +15,17 @@
  */
 package net.codestory.http;
 
+import static net.codestory.http.constants.Headers.*;
+
 import java.io.*;
 import java.net.*;
 import java.nio.file.Path;
+import java.time.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
+import net.codestory.http.compilers.*;
 import net.codestory.http.errors.*;
 import net.codestory.http.filters.log.*;
 import net.codestory.http.internal.*;
@@ -28,11 +34,8 @@ import net.codestory.http.payload.*;
 import net.codestory.http.reload.*;
 import net.codestory.http.routes.*;
 import net.codestory.http.ssl.*;
+import net.codestory.http.transport.*;
 
-import org.simpleframework.http.*;
-import org.simpleframework.http.core.*;
-import org.simpleframework.transport.*;
-import org.simpleframework.transport.connect.*;
 import org.slf4j.*;
 
 import javax.net.ssl.*;
@@ -40,10 +43,11 @@ import javax.net.ssl.*;
 public class WebServer {
   private final static Logger LOG = LoggerFactory.getLogger(WebServer.class);
 
-  private final Server server;
-  private final SocketConnection connection;
+  private final Transport transport;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private volatile boolean draining;
+  private final List<Integer> ports = new CopyOnWriteArrayList<>();
   private RoutesProvider routesProvider;
-  private int port;
 
   public WebServer() {
     this(routes -> {
@@ -51,15 +55,26 @@ public class WebServer {
   }
 
   public WebServer(Configuration configuration) {
-    try {
-      server = new ContainerServer(this::handle);
-      connection = new SocketConnection(server);
-    } catch (IOException e) {
-      throw new IllegalStateException("Unable to create http server", e);
-    }
+    this(defaultTransport(), configuration);
+  }
+
+  public WebServer(Transport transport, Configuration configuration) {
+    this.transport = transport;
     configure(configuration);
   }
 
+  private static Transport defaultTransport() {
+    String name = Env.INSTANCE.transport();
+    switch (name) {
+      case "simple":
+        return new SimpleTransport();
+      case "nio":
+        return new NioTransport();
+      default:
+        throw new IllegalStateException("Unknown transport " + name);
+    }
+  }
+
   public static void main(String[] args) throws Exception {
     new WebServer(routes -> routes
         .filter(new LogRequestFilter()))
@@ -92,39 +107,63 @@ public class WebServer {
   }
 
   public WebServer start(int port) {
-    return startWithContext(port, null);
+    return start(port, new ConnectorOptions());
+  }
+
+  // Can be called several times, with different ports, to listen on all of them
+  public WebServer start(int port, ConnectorOptions options) {
+    return startWithContext(port, null, options);
   }
 
   public WebServer startSSL(int port, Path pathCertificate, Path pathPrivateKey) {
+    return startSSL(port, pathCertificate, pathPrivateKey, new ConnectorOptions());
+  }
+
+  public WebServer startSSL(int port, Path pathCertificate, Path pathPrivateKey, ConnectorOptions options) {
     SSLContext context;
     try {
       context = new SSLContextFactory().create(pathCertificate, pathPrivateKey);
     } catch (Exception e) {
       throw new IllegalStateException("Unable to read certificate or key", e);
     }
-    return startWithContext(port, context);
+    return startWithContext(port, context, options);
   }
 
-  private WebServer startWithContext(int port, SSLContext context) {
+  private synchronized WebServer startWithContext(int port, SSLContext context, ConnectorOptions options) {
+    boolean first = ports.isEmpty();
+
+    // The PORT environment variable only overrides the main port
+    int actualPort = first ? Env.INSTANCE.overriddenPort(port) : port;
+
     try {
-      this.port = Env.INSTANCE.overriddenPort(port);
+      if (first && Env.INSTANCE.prodMode() && Env.INSTANCE.precompileAssets()) {
+        CompletableFuture<Integer> precompilation = new AssetsPrecompiler().start();
+        if (Env.INSTANCE.waitForPrecompilation()) {
+          precompilation.join();
+        }
+      }
 
-      connection.connect(new InetSocketAddress(this.port), context);
+      transport.start(options.address(actualPort), context, options, this::handle);
+      ports.add(actualPort);
 
-      LOG.info("Server started on port {}", this.port);
+      LOG.info("Server started on port {}", actualPort);
     } catch (RuntimeException e) {
       throw e;
     } catch (BindException e) {
-      throw new IllegalStateException("Port already in use " + this.port);
+      throw new IllegalStateException("Port already in use " + actualPort);
     } catch (Exception e) {
-      throw new IllegalStateException("Unable to bind the web server on port " + this.port, e);
+      throw new IllegalStateException("Unable to bind the web server on port " + actualPort, e);
     }
 
     return this;
   }
 
   public int port() {
-    return port;
+    return ports.isEmpty() ? 0 : ports.get(0);
+  }
+
+  public List<Integer> ports() {
+    return Collections.unmodifiableList(ports);
   }
 
   public void reset() {
@@ -134,18 +173,63 @@ public class WebServer {
 
   public void stop() {
     try {
-      server.stop();
+      transport.stop();
     } catch (IOException e) {
       throw new IllegalStateException("Unable to stop the web server", e);
     }
   }
 
-  void handle(Request request, Response response) {
+  public int stopGracefully(Duration timeout) {
+    draining = true;
+    try {
+      transport.stopAccepting();
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to stop the web server", e);
+    }
+
+    int aborted = awaitInFlightRequests(timeout);
+    if (aborted > 0) {
+      LOG.warn("Stopping the server with {} requests still in flight", aborted);
+    }
+
+    stop();
+    return aborted;
+  }
+
+  private int awaitInFlightRequests(Duration timeout) {
+    long deadline = System.nanoTime() + timeout.toNanos();
+
+    synchronized (inFlight) {
+      while (inFlight.get() > 0) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          break;
+        }
+
+        try {
+          TimeUnit.NANOSECONDS.timedWait(inFlight, remaining);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          break;
+        }
+      }
+    }
+
+    return inFlight.get();
+  }
+
+  void handle(HttpRequest request, HttpResponse response) {
+    inFlight.incrementAndGet();
+    if (draining) {
+      response.setHeader(CONNECTION, "close");
+    }
+
     Context context = null;
 
     try {
       RouteCollection routes = routesProvider.get();
       context = new Context(request, response, routes.getIocAdapter());
+      context.onAsyncComplete(this::completed); // Event streams are in flight until they are closed
 
       applyRoutes(routes, context);
     } catch (Exception e) {
@@ -157,10 +241,21 @@ public class WebServer {
       }
       handleServerError(context, e);
     } finally {
-      try {
-        response.close();
-      } catch (IOException e) {
-        // Ignore
+      if ((context == null) || !context.isAsync()) {
+        try {
+          response.close();
+        } catch (IOException e) {
+          // Ignore
+        }
+        completed();
+      }
+    }
+  }
+
+  private void completed() {
+    if ((inFlight.decrementAndGet() == 0) && draining) {
+      synchronized (inFlight) {
+        inFlight.notifyAll();
       }
     }
   }
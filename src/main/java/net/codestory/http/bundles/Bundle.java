@@ -0,0 +1,65 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.bundles;
+
+import net.codestory.http.payload.*;
+
+public class Bundle {
+  static final int HASH_LENGTH = 12;
+
+  private final String name;
+  private final String contentType;
+  private final PreparedBody body;
+  private final String url;
+
+  Bundle(String name, String contentType, byte[] data) {
+    this.name = name;
+    this.contentType = contentType;
+    this.body = new PreparedBody(data, true);
+    this.url = Bundles.PREFIX + fingerprinted(name, body.etag().substring(0, HASH_LENGTH));
+  }
+
+  private static String fingerprinted(String name, String hash) {
+    int dotIndex = name.lastIndexOf('.');
+    return (dotIndex <= 0) ? (name + "-" + hash) : (name.substring(0, dotIndex) + "-" + hash + name.substring(dotIndex));
+  }
+
+  static String unfingerprinted(String fingerprinted) {
+    int dotIndex = fingerprinted.lastIndexOf('.');
+    int hashEnd = (dotIndex <= 0) ? fingerprinted.length() : dotIndex;
+    int hashStart = hashEnd - HASH_LENGTH - 1;
+    if ((hashStart <= 0) || (fingerprinted.charAt(hashStart) != '-')) {
+      return null;
+    }
+    return fingerprinted.substring(0, hashStart) + fingerprinted.substring(hashEnd);
+  }
+
+  public String name() {
+    return name;
+  }
+
+  public String contentType() {
+    return contentType;
+  }
+
+  public PreparedBody body() {
+    return body;
+  }
+
+  public String url() {
+    return url;
+  }
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.bundles;
+
+import static java.nio.charset.StandardCharsets.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import net.codestory.http.compilers.*;
+import net.codestory.http.io.*;
+import net.codestory.http.misc.*;
+import net.codestory.http.templating.*;
+import net.codestory.http.types.*;
+
+// Bundles are declared in _config.yml:
+//
+// bundles:
+//   app.js: [js/jquery.js, js/app.coffee]
+//   app.css: [assets/reset.css, assets/style.less]
+//
+public enum Bundles {
+  INSTANCE;
+
+  public static final String PREFIX = "/bundles/";
+
+  private final ConcurrentMap<String, Bundle> bundleByName = new ConcurrentHashMap<>();
+
+  public Bundle get(String name) {
+    if (!Env.INSTANCE.prodMode()) {
+      return build(name);
+    }
+    return bundleByName.computeIfAbsent(name, this::build);
+  }
+
+  public String url(String name) {
+    return get(name).url();
+  }
+
+  // Doesn't build the bundle, the fingerprint might still be outdated
+  public boolean isDeclared(String uri) {
+    String name = name(uri);
+    return (name != null) && declarations().containsKey(name);
+  }
+
+  public Bundle find(String uri) {
+    if (!isDeclared(uri)) {
+      return null;
+    }
+
+    Bundle bundle = get(name(uri));
+    return bundle.url().equals(uri) ? bundle : null;
+  }
+
+  private static String name(String uri) {
+    return uri.startsWith(PREFIX) ? Bundle.unfingerprinted(uri.substring(PREFIX.length())) : null;
+  }
+
+  private Bundle build(String name) {
+    List<String> parts = declarations().get(name);
+    if (parts == null) {
+      throw new IllegalArgumentException("Unknown bundle " + name);
+    }
+
+    Path bundlePath = Paths.get(name);
+    boolean css = ".css".equals(Resources.extension(bundlePath));
+
+    StringBuilder content = new StringBuilder();
+    for (String part : parts) {
+      String compiled = compile(Paths.get("/" + part));
+      if (css) {
+        content.append(Minifier.css(compiled)).append('\n');
+      } else {
+        content.append(separated(compiled));
+      }
+    }
+
+    return new Bundle(name, ContentTypes.get(bundlePath), content.toString().getBytes(UTF_8));
+  }
+
+  // Javascript is only concatenated, minifying it safely needs a real tokenizer
+  private static String separated(String js) {
+    String trimmed = js.replaceFirst("\\s+$", "");
+    return trimmed.endsWith(";") ? (trimmed + "\n") : (trimmed + "\n;\n");
+  }
+
+  // Same path and content as requests for each file, so that compilation is cached
+  private static String compile(Path path) {
+    try {
+      return Compilers.INSTANCE.compile(path, Resources.read(path, UTF_8)).content();
+    } catch (IOException | IllegalArgumentException e) {
+      throw new IllegalStateException("Unable to bundle " + path, e);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, List<String>> declarations() {
+    Object bundles = Site.get().get("bundles");
+    return (bundles instanceof Map) ? (Map<String, List<String>>) bundles : Collections.emptyMap();
+  }
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.bundles;
+
+// Conservative css minification: only drops what can't change the meaning of the code
+//
+class Minifier {
+  private Minifier() {
+    // Static class
+  }
+
+  static String css(String css) {
+    StringBuilder minified = new StringBuilder(css.length());
+
+    int length = css.length();
+    for (int i = 0; i < length; i++) {
+      char c = css.charAt(i);
+
+      if ((c == '"') || (c == '\'')) {
+        int end = endOfString(css, i, c);
+        minified.append(css, i, end);
+        i = end - 1;
+      } else if ((c == '/') && (i + 1 < length) && (css.charAt(i + 1) == '*')) {
+        int end = css.indexOf("*/", i + 2);
+        i = (end < 0) ? length : end + 1;
+      } else if (Character.isWhitespace(c)) {
+        if ((minified.length() > 0) && (last(minified) != ' ') && !isCssSeparator(last(minified)) && (i + 1 < length) && !isCssSeparator(nextNonWhitespace(css, i))) {
+          minified.append(' ');
+        }
+      } else if ((c == '}') && (minified.length() > 0) && (last(minified) == ';')) {
+        minified.setCharAt(minified.length() - 1, '}');
+      } else {
+        if (isCssSeparator(c) && (minified.length() > 0) && (last(minified) == ' ')) {
+          minified.setLength(minified.length() - 1);
+        }
+        minified.append(c);
+      }
+    }
+
+    return minified.toString();
+  }
+
+  private static boolean isCssSeparator(char c) {
+    return (c == '{') || (c == '}') || (c == ';') || (c == ',') || (c == '>');
+  }
+
+  private static char last(StringBuilder builder) {
+    return builder.charAt(builder.length() - 1);
+  }
+
+  private static char nextNonWhitespace(String text, int from) {
+    for (int i = from; i < text.length(); i++) {
+      if (!Character.isWhitespace(text.charAt(i))) {
+        return text.charAt(i);
+      }
+    }
+    return ';';
+  }
+
+  private static int endOfString(String text, int start, char quote) {
+    for (int i = start + 1; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == '\\') {
+        i++;
+      } else if (c == quote) {
+        return i + 1;
+      }
+    }
+    return text.length();
+  }
+}
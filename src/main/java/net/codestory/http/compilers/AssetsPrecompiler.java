@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.compilers;
+
+import static java.nio.charset.StandardCharsets.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import net.codestory.http.io.*;
+import net.codestory.http.templating.*;
+import net.codestory.http.types.*;
+
+import org.slf4j.*;
+
+public class AssetsPrecompiler {
+  private final static Logger LOG = LoggerFactory.getLogger(AssetsPrecompiler.class);
+
+  private final int threads;
+
+  public AssetsPrecompiler() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  public AssetsPrecompiler(int threads) {
+    this.threads = threads;
+  }
+
+  public List<String> assets() {
+    List<String> paths = new ArrayList<>();
+    for (String path : Resources.list()) {
+      if (Resources.isPublic(Paths.get(path)) && Compilers.INSTANCE.canCompile(Paths.get(path))) {
+        paths.add(path);
+      }
+    }
+    return paths;
+  }
+
+  public CompletableFuture<Integer> start() {
+    List<String> paths = assets();
+
+    LOG.info("Precompiling {} assets...", paths.size());
+    long start = System.currentTimeMillis();
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+      Thread thread = new Thread(runnable, "assets-precompiler");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    AtomicInteger done = new AtomicInteger();
+    AtomicInteger compiled = new AtomicInteger();
+
+    CompletableFuture<?>[] tasks = paths.stream().map(path -> CompletableFuture.runAsync(() -> {
+      try {
+        precompile(Paths.get("/" + path));
+        compiled.incrementAndGet();
+      } catch (Exception e) {
+        LOG.warn("Unable to precompile " + path, e);
+      }
+      LOG.debug("Precompiled {} ({}/{})", path, done.incrementAndGet(), paths.size());
+    }, executor)).toArray(CompletableFuture[]::new);
+
+    return CompletableFuture.allOf(tasks).thenApply(ignore -> {
+      executor.shutdown();
+      LOG.info("Precompiled {}/{} assets in {} ms", compiled.get(), paths.size(), System.currentTimeMillis() - start);
+      return compiled.get();
+    });
+  }
+
+  // Use the same paths and inputs as requests do, so that they hit the cache
+  private static void precompile(Path path) throws IOException {
+    if (ContentTypes.support_templating(path)) {
+      new Template(path.toString()).render();
+    } else {
+      Compilers.INSTANCE.compile(path, Resources.read(path, UTF_8));
+    }
+  }
+}
@@ -18,16 +18,37 @@ package net.codestory.http.compilers;
 import static java.nio.charset.StandardCharsets.*;
 
 import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
 
 import net.codestory.http.io.*;
+import net.codestory.http.misc.*;
 
 public interface CacheEntry extends Serializable {
+  int MAPPED_THRESHOLD = 256 * 1024;
+
   String content();
 
   byte[] toBytes();
 
   long lastModified();
 
+  default long size() {
+    return toBytes().length;
+  }
+
+  default String etag() {
+    return Md5.of(toBytes());
+  }
+
+  default void writeTo(WritableByteChannel channel) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(toBytes());
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
   public static CacheEntry disk(File file) {
     return new CacheEntry() {
       @Override
@@ -62,6 +83,7 @@ public interface CacheEntry extends Serializable {
   public static CacheEntry memory(String content) {
     return new CacheEntry() {
       private final long lastModified = System.currentTimeMillis();
+      private volatile byte[] bytes;
 
       @Override
       public String content() {
@@ -70,13 +92,104 @@ public interface CacheEntry extends Serializable {
 
       @Override
       public byte[] toBytes() {
-        return content.getBytes(UTF_8);
+        if (bytes == null) {
+          bytes = content.getBytes(UTF_8);
+        }
+        return bytes;
+      }
+
+      @Override
+      public long lastModified() {
+        return lastModified;
+      }
+    };
+  }
+
+  public static CacheEntry loaded(File file) throws IOException {
+    if (file.length() < MAPPED_THRESHOLD) {
+      return bytes(Files.readAllBytes(file.toPath()), file.lastModified());
+    }
+
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      return mapped(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), file.lastModified());
+    }
+  }
+
+  public static CacheEntry bytes(byte[] bytes, long lastModified) {
+    return new CacheEntry() {
+      private volatile String etag;
+
+      @Override
+      public String content() {
+        return new String(bytes, UTF_8);
+      }
+
+      @Override
+      public byte[] toBytes() {
+        return bytes;
       }
 
       @Override
       public long lastModified() {
         return lastModified;
       }
+
+      @Override
+      public long size() {
+        return bytes.length;
+      }
+
+      @Override
+      public String etag() {
+        if (etag == null) {
+          etag = Md5.of(bytes);
+        }
+        return etag;
+      }
+    };
+  }
+
+  static CacheEntry mapped(ByteBuffer buffer, long lastModified) {
+    return new CacheEntry() {
+      private volatile String etag;
+
+      @Override
+      public String content() {
+        return UTF_8.decode(buffer.duplicate()).toString();
+      }
+
+      @Override
+      public byte[] toBytes() {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+      }
+
+      @Override
+      public long lastModified() {
+        return lastModified;
+      }
+
+      @Override
+      public long size() {
+        return buffer.remaining();
+      }
+
+      @Override
+      public String etag() {
+        if (etag == null) {
+          etag = Md5.of(buffer);
+        }
+        return etag;
+      }
+
+      @Override
+      public void writeTo(WritableByteChannel channel) throws IOException {
+        ByteBuffer data = buffer.duplicate();
+        while (data.hasRemaining()) {
+          channel.write(data);
+        }
+      }
     };
   }
 }
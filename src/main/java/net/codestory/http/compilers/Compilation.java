@@ -0,0 +1,51 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.compilers;
+
+import java.nio.file.*;
+import java.util.*;
+
+import net.codestory.http.io.*;
+
+class Compilation {
+  private final CacheEntry entry;
+  private final Map<Path, Long> lastModifiedByImport;
+
+  Compilation(CacheEntry entry, Collection<Path> imports) {
+    this.entry = entry;
+    this.lastModifiedByImport = new LinkedHashMap<>();
+    for (Path path : imports) {
+      lastModifiedByImport.put(path, Resources.lastModified(path));
+    }
+  }
+
+  CacheEntry entry() {
+    return entry;
+  }
+
+  List<Path> imports() {
+    return new ArrayList<>(lastModifiedByImport.keySet());
+  }
+
+  boolean isFresh() {
+    for (Map.Entry<Path, Long> entry : lastModifiedByImport.entrySet()) {
+      if (Resources.lastModified(entry.getKey()) != entry.getValue()) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
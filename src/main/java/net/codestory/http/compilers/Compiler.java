@@ -17,8 +17,17 @@ package net.codestory.http.compilers;
 
 import java.io.*;
 import java.nio.file.*;
+import java.util.*;
 
 @FunctionalInterface
 public interface Compiler extends Serializable {
   String compile(Path path, String source) throws IOException;
+
+  default String compile(Path path, String source, Set<Path> imports) throws IOException {
+    return compile(path, source);
+  }
+
+  default Map<String, String> compileAll(String extension, Path path, String source, Set<Path> imports) throws IOException {
+    return Collections.singletonMap(extension, compile(path, source, imports));
+  }
 }
@@ -18,23 +18,26 @@ package net.codestory.http.compilers;
 import static java.util.Map.*;
 import static net.codestory.http.misc.MemoizingSupplier.*;
 
+import java.io.*;
 import java.nio.file.*;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.function.*;
 
+import net.codestory.http.io.*;
+import net.codestory.http.misc.*;
+
 public enum Compilers {
   INSTANCE;
 
   private final Map<String, Supplier<Compiler>> compilerByExtension = new HashMap<>();
-  private final ConcurrentMap<String, CacheEntry> cache = new ConcurrentHashMap<>();
-  private final DiskCache diskCache = new DiskCache("V1");
+  private final ConcurrentMap<String, Compilation> cache = new ConcurrentHashMap<>();
+  private final DiskCache diskCache = new DiskCache("V2");
 
   private Compilers() {
     register(CoffeeCompiler::new, ".coffee", ".litcoffee");
     register(MarkdownCompiler::new, ".md", ".markdown");
-    register(LessCompiler::new, ".less");
-    register(LessSourceMapCompiler::new, ".css.map");
+    register(LessCompiler::new, ".less", ".css.map");
     register(AsciidocCompiler::new, ".asciidoc", ".adoc");
   }
 
@@ -47,19 +50,94 @@ public enum Compilers {
     }
   }
 
+  public boolean canCompile(Path path) {
+    for (String extension : compilerByExtension.keySet()) {
+      if (path.toString().endsWith(extension)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   public CacheEntry compile(Path path, String content) {
-    return cache.computeIfAbsent(path.toString() + ";" + content, ignore -> doCompile(path, content));
+    String key = path.toString() + ";" + content;
+
+    // Only the modification dates of imported files are checked on the hot path
+    Compilation compilation = cache.get(key);
+    if ((compilation == null) || !compilation.isFresh()) {
+      Map<String, Compilation> siblings = new HashMap<>();
+      compilation = cache.compute(key, (k, previous) -> ((previous != null) && previous.isFresh()) ? previous : doCompile(path, content, previous, siblings));
+      cache.putAll(siblings);
+    }
+
+    return compilation.entry();
+  }
+
+  public void flush() {
+    diskCache.flush();
   }
 
-  private CacheEntry doCompile(Path path, String content) {
+  private Compilation doCompile(Path path, String content, Compilation previous, Map<String, Compilation> siblings) {
     for (Entry<String, Supplier<Compiler>> entry : compilerByExtension.entrySet()) {
       String extension = entry.getKey();
 
       if (path.toString().endsWith(extension)) {
-        return diskCache.computeIfAbsent(path, content, entry.getValue(), extension);
+        return compile(path, content, entry.getValue(), extension, previous, siblings);
       }
     }
 
-    return CacheEntry.memory(content);
+    return new Compilation(CacheEntry.memory(content), Collections.emptyList());
+  }
+
+  private Compilation compile(Path path, String content, Supplier<Compiler> compilerSupplier, String extension, Compilation previous, Map<String, Compilation> siblings) {
+    String sha1 = Sha1.of(content);
+
+    List<Path> knownImports = (previous != null) ? previous.imports() : diskCache.imports(extension, sha1);
+    try {
+      CacheEntry cached = diskCache.get(extension, hash(sha1, knownImports));
+      if (cached != null) {
+        return new Compilation(cached, knownImports);
+      }
+    } catch (IOException | IllegalArgumentException e) {
+      // An imported file is gone, compile again to find out about the new imports
+    }
+
+    Set<Path> imports = new LinkedHashSet<>();
+    Map<String, String> outputs;
+    String hash;
+    try {
+      outputs = compilerSupplier.get().compileAll(extension, path, content, imports);
+      hash = hash(sha1, imports);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+
+    // Other outputs of the same run, eg. a source map, are cached along
+    String base = Strings.substringBeforeLast(path.toString(), extension);
+    for (Entry<String, String> output : outputs.entrySet()) {
+      diskCache.put(output.getKey(), hash, output.getValue());
+      if (!imports.isEmpty()) {
+        diskCache.putImports(output.getKey(), sha1, imports);
+      }
+
+      if (!output.getKey().equals(extension)) {
+        siblings.put(base + output.getKey() + ";" + content, new Compilation(CacheEntry.memory(output.getValue()), imports));
+      }
+    }
+
+    return new Compilation(CacheEntry.memory(outputs.get(extension)), imports);
+  }
+
+  // Combined hash of a source and of all the sources it imports, transitively
+  private static String hash(String sha1, Collection<Path> imports) throws IOException {
+    if (imports.isEmpty()) {
+      return sha1;
+    }
+
+    StringBuilder hashes = new StringBuilder(sha1);
+    for (Path path : imports) {
+      hashes.append(';').append(path).append('=').append(Sha1.of(Resources.readBytes(path)));
+    }
+    return Sha1.of(hashes.toString());
   }
 }
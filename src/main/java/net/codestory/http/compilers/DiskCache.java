@@ -15,47 +15,230 @@
  */
 package net.codestory.http.compilers;
 
+import static java.nio.charset.StandardCharsets.*;
+import static java.nio.file.StandardCopyOption.*;
+import static net.codestory.http.io.FileVisitor.*;
+import static net.codestory.http.misc.MemoizingSupplier.*;
+
 import java.io.*;
+import java.net.*;
 import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 import java.util.function.*;
 
+import net.codestory.http.io.*;
 import net.codestory.http.misc.*;
 
+import org.slf4j.*;
+
 public class DiskCache {
+  private final static Logger LOG = LoggerFactory.getLogger(DiskCache.class);
+
+  public static final String FOLDER_PROPERTY = "http.cache.folder";
+  public static final String MAX_SIZE_PROPERTY = "http.cache.max.size";
+  public static final String PACKAGED_FOLDER = "META-INF/code-story/cache";
+
+  private static final long DEFAULT_MAX_SIZE = 256L * 1024 * 1024;
+
+  private final String version;
   private final File root;
+  private final long maxSize;
+  private final Supplier<Map<String, IndexEntry>> index;
+  private final AtomicLong totalSize;
+  private final ExecutorService writer;
 
   public DiskCache(String version) {
-    this.root = Paths.get(System.getProperty("user.home"), ".code-story", "cache", version).toFile();
+    this(version, new File(System.getProperty(FOLDER_PROPERTY, Paths.get(System.getProperty("user.home"), ".code-story", "cache").toString()), version), Long.getLong(MAX_SIZE_PROPERTY, DEFAULT_MAX_SIZE));
+  }
+
+  DiskCache(String version, File root, long maxSize) {
+    this.version = version;
+    this.root = root;
+    this.maxSize = maxSize;
+    this.index = memoize(this::scan);
+    this.totalSize = new AtomicLong();
+    this.writer = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "disk-cache-writer");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  CacheEntry get(String extension, String hash) {
+    String name = extension.substring(1) + "/" + hash;
+
+    URL packaged = ClassLoader.getSystemResource(PACKAGED_FOLDER + "/" + version + "/" + name);
+    if (packaged != null) {
+      return readPackaged(packaged);
+    }
+
+    IndexEntry entry = index.get().get(name);
+    if (entry != null) {
+      entry.lastAccess = System.currentTimeMillis();
+      try {
+        return CacheEntry.loaded(entry.file);
+      } catch (IOException e) {
+        // Deleted behind our back
+        remove(name, entry);
+      }
+    }
+
+    return null;
+  }
+
+  void put(String extension, String hash, String compiled) {
+    String name = extension.substring(1) + "/" + hash;
+
+    writer.submit(() -> persist(name, compiled));
+  }
+
+  List<Path> imports(String extension, String sha1) {
+    CacheEntry imports = get(extension + ".imports", sha1);
+    if (imports == null) {
+      return Collections.emptyList();
+    }
+
+    List<Path> paths = new ArrayList<>();
+    for (String line : imports.content().split("\n")) {
+      if (!line.isEmpty()) {
+        paths.add(Paths.get(line));
+      }
+    }
+    return paths;
+  }
+
+  void putImports(String extension, String sha1, Collection<Path> imports) {
+    StringBuilder lines = new StringBuilder();
+    for (Path path : imports) {
+      lines.append(path.toString().replace('\\', '/')).append('\n');
+    }
+
+    put(extension + ".imports", sha1, lines.toString());
+  }
+
+  public void flush() {
+    try {
+      writer.submit(() -> {
+      }).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Unable to flush the disk cache", e);
+    }
+  }
+
+  long size() {
+    return totalSize.get();
   }
 
-  CacheEntry computeIfAbsent(Path path, String content, Supplier<Compiler> compilerSupplier, String extension) {
-    String sha1 = Sha1.of(content);
+  private static CacheEntry readPackaged(URL url) {
+    try (InputStream input = url.openStream()) {
+      return CacheEntry.bytes(InputStreams.readBytes(input), System.currentTimeMillis());
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to read packaged cache entry " + url, e);
+    }
+  }
 
-    File file = new File(new File(root, extension.substring(1)), sha1);
-    if (file.exists()) {
-      return CacheEntry.disk(file);
+  private Map<String, IndexEntry> scan() {
+    Map<String, IndexEntry> entries = new ConcurrentHashMap<>();
+    if (!root.isDirectory()) {
+      return entries;
     }
 
     try {
-      String compiled = compilerSupplier.get().compile(path, content);
-      writeToCache(file, compiled);
-      return CacheEntry.disk(file);
+      Files.walkFileTree(root.toPath(), onFile(file -> {
+        if (file.toString().endsWith(".tmp")) {
+          Files.deleteIfExists(file); // Left over by a crash
+          return;
+        }
+
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long lastAccess = Math.max(attributes.lastAccessTime().toMillis(), attributes.lastModifiedTime().toMillis());
+
+        entries.put(Resources.relativePath(root.toPath(), file), new IndexEntry(file.toFile(), attributes.size(), lastAccess));
+        totalSize.addAndGet(attributes.size());
+      }));
     } catch (IOException e) {
-      throw new IllegalStateException(e);
+      LOG.warn("Unable to scan disk cache " + root, e);
     }
+
+    return entries;
   }
 
-  private static void writeToCache(File file, String data) throws IOException {
-    File parentFile = file.getParentFile();
-    if (!parentFile.exists() && !parentFile.mkdirs()) {
-      throw new IllegalStateException("Unable to create cache folder: " + parentFile);
+  private void persist(String name, String data) {
+    File file = new File(root, name);
+    File parent = file.getParentFile();
+    if (!parent.exists() && !parent.mkdirs()) {
+      LOG.warn("Unable to create cache folder: {}", parent);
+      return;
     }
 
-    File tmpFile = new File(file.getAbsolutePath() + ".tmp");
-    try (Writer writer = new FileWriter(file)) {
-      writer.write(data);
+    byte[] bytes = data.getBytes(UTF_8);
+
+    File tmpFile = null;
+    try {
+      tmpFile = File.createTempFile(file.getName(), ".tmp", parent);
+      Files.write(tmpFile.toPath(), bytes);
+
+      try {
+        Files.move(tmpFile.toPath(), file.toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tmpFile.toPath(), file.toPath(), REPLACE_EXISTING);
+      }
+    } catch (IOException e) {
+      LOG.warn("Unable to write cache file " + file, e);
+      if (tmpFile != null) {
+        tmpFile.delete();
+      }
+      return;
     }
 
-    tmpFile.renameTo(file);
+    IndexEntry previous = index.get().put(name, new IndexEntry(file, bytes.length, System.currentTimeMillis()));
+    totalSize.addAndGet(bytes.length - ((previous == null) ? 0 : previous.size));
+
+    evictLeastRecentlyUsed();
+  }
+
+  private void evictLeastRecentlyUsed() {
+    if (totalSize.get() <= maxSize) {
+      return;
+    }
+
+    List<Map.Entry<String, IndexEntry>> entries = new ArrayList<>(index.get().entrySet());
+    entries.sort(Comparator.comparingLong(entry -> entry.getValue().lastAccess));
+
+    for (Map.Entry<String, IndexEntry> entry : entries) {
+      if (totalSize.get() <= maxSize) {
+        break;
+      }
+
+      if (remove(entry.getKey(), entry.getValue())) {
+        entry.getValue().file.delete();
+      }
+    }
+  }
+
+  private boolean remove(String name, IndexEntry entry) {
+    if (!index.get().remove(name, entry)) {
+      return false;
+    }
+
+    totalSize.addAndGet(-entry.size);
+    return true;
+  }
+
+  private static class IndexEntry {
+    private final File file;
+    private final long size;
+    private volatile long lastAccess;
+
+    private IndexEntry(File file, long size, long lastAccess) {
+      this.file = file;
+      this.size = size;
+      this.lastAccess = lastAccess;
+    }
   }
 }
@@ -17,17 +17,43 @@ package net.codestory.http.compilers;
 
 import java.io.*;
 import java.nio.file.*;
+import java.util.*;
+
+import net.codestory.http.io.*;
 
 import com.github.sommeri.less4j.*;
 import com.github.sommeri.less4j.core.*;
 
 class LessCompiler implements Compiler {
+  private static final String LESS = ".less";
+  private static final String SOURCE_MAP = ".css.map";
+
   @Override
   public String compile(Path path, String source) throws IOException {
+    return compile(path, source, new HashSet<>());
+  }
+
+  @Override
+  public String compile(Path path, String source, Set<Path> imports) throws IOException {
+    String extension = path.toString().endsWith(SOURCE_MAP) ? SOURCE_MAP : LESS;
+    return compileAll(extension, path, source, imports).get(extension);
+  }
+
+  // Css and source map come out of the same run
+  @Override
+  public Map<String, String> compileAll(String extension, Path path, String source, Set<Path> imports) throws IOException {
+    String base = Strings.substringBeforeLast(path.toString(), extension);
+
+    com.github.sommeri.less4j.LessCompiler.CompilationResult result;
     try {
-      return new ThreadUnsafeLessCompiler().compile(new PathSource(path, source)).getCss();
+      result = new ThreadUnsafeLessCompiler().compile(new PathSource(Paths.get(base + LESS), source, imports));
     } catch (Less4jException e) {
       throw new IOException("Unable to compile less", e);
     }
+
+    Map<String, String> outputs = new HashMap<>();
+    outputs.put(LESS, result.getCss());
+    outputs.put(SOURCE_MAP, result.getSourceMap());
+    return outputs;
   }
-}
\ No newline at end of file
+}
@@ -19,6 +19,7 @@ import static java.nio.charset.StandardCharsets.*;
 
 import java.io.*;
 import java.nio.file.*;
+import java.util.*;
 
 import net.codestory.http.io.*;
 
@@ -27,10 +28,12 @@ import com.github.sommeri.less4j.*;
 class PathSource extends LessSource {
   private final Path path;
   private final String content;
+  private final Set<Path> imports;
 
-  PathSource(Path path, String content) {
+  PathSource(Path path, String content, Set<Path> imports) {
     this.path = path;
     this.content = content;
+    this.imports = imports;
   }
 
   @Override
@@ -42,8 +45,9 @@ class PathSource extends LessSource {
 
     try {
       String includeContent = Resources.read(relativePath, UTF_8);
+      imports.add(relativePath);
 
-      return new PathSource(relativePath, includeContent);
+      return new PathSource(relativePath, includeContent, imports);
     } catch (IOException e) {
       throw new CannotReadFile();
     }
@@ -0,0 +1,55 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.compilers;
+
+import java.nio.file.*;
+
+import net.codestory.http.io.*;
+
+import org.slf4j.*;
+
+// Run at build time, eg. with exec-maven-plugin during prepare-package
+//
+public class PrecompileAssets {
+  private final static Logger LOG = LoggerFactory.getLogger(PrecompileAssets.class);
+
+  private PrecompileAssets() {
+    // Static class
+  }
+
+  public static void main(String[] args) {
+    int failures = precompile((args.length > 0) ? args[0] : Resources.CLASSES_OUTPUT_DIR);
+    if (failures > 0) {
+      throw new IllegalStateException("Unable to precompile " + failures + " assets");
+    }
+  }
+
+  // Returns the number of assets that failed to compile
+  public static int precompile(String output) {
+    System.setProperty(DiskCache.FOLDER_PROPERTY, Paths.get(output, DiskCache.PACKAGED_FOLDER).toString());
+
+    AssetsPrecompiler precompiler = new AssetsPrecompiler();
+    int total = precompiler.assets().size();
+    int compiled = precompiler.start().join();
+    Compilers.INSTANCE.flush();
+
+    int failures = total - compiled;
+    if (failures > 0) {
+      LOG.error("Unable to precompile {} assets", failures);
+    }
+    return failures;
+  }
+}
@@ -16,7 +16,9 @@
 package net.codestory.http.convert;
 
 import java.io.*;
+import java.lang.reflect.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import net.codestory.http.internal.*;
 
@@ -28,12 +30,33 @@ public class TypeConvert {
   private static ObjectMapper OBJECT_MAPPER = new ObjectMapper()
       .setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
 
+  private static final ConcurrentMap<Class<?>, ObjectWriter> WRITERS = new ConcurrentHashMap<>();
+  private static final ConcurrentMap<Class<?>, ObjectReader> READERS = new ConcurrentHashMap<>();
+
   private TypeConvert() {
     // static class
   }
 
   public static void overrideMapper(ObjectMapper mapper) {
     OBJECT_MAPPER = mapper;
+    WRITERS.clear();
+    READERS.clear();
+  }
+
+  // Resolves the writer and reader ahead of the first request
+  public static void prepare(Class<?> type) {
+    if ((type != void.class) && !type.isPrimitive() && !type.isInterface() && !Modifier.isAbstract(type.getModifiers()) && !Context.class.isAssignableFrom(type)) {
+      writer(type);
+      reader(type);
+    }
+  }
+
+  private static ObjectWriter writer(Class<?> type) {
+    return WRITERS.computeIfAbsent(type, key -> OBJECT_MAPPER.writerWithType(key));
+  }
+
+  private static ObjectReader reader(Class<?> type) {
+    return READERS.computeIfAbsent(type, key -> OBJECT_MAPPER.reader(key));
   }
 
   public static Object[] convert(Context context, String[] pathParameters, Class<?>[] types) {
@@ -69,19 +92,16 @@ public class TypeConvert {
       return convertValue(context.keyValues(), type);
     }
 
-    String json;
-    try {
-      json = context.request().getContent();
+    try (InputStream json = context.inputStream()) {
+      return reader(type).readValue(json);
     } catch (IOException e) {
-      throw new IllegalArgumentException("Unable read request content", e);
+      throw new IllegalArgumentException("Unable to parse json", e);
     }
-
-    return fromJson(json, type);
   }
 
   public static <T> T fromJson(String json, Class<T> type) {
     try {
-      return OBJECT_MAPPER.readValue(json, type);
+      return reader(type).readValue(json);
     } catch (IOException e) {
       throw new IllegalArgumentException("Unable to parse json", e);
     }
@@ -93,7 +113,15 @@ public class TypeConvert {
 
   public static byte[] toByteArray(Object value) {
     try {
-      return OBJECT_MAPPER.writer().writeValueAsBytes(value);
+      return writerFor(value).writeValueAsBytes(value);
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException("Unable to serialize to json", e);
+    }
+  }
+
+  public static void writeJson(Object value, OutputStream output) throws IOException {
+    try {
+      writerFor(value).writeValue(output, value);
     } catch (JsonProcessingException e) {
       throw new IllegalArgumentException("Unable to serialize to json", e);
     }
@@ -101,12 +129,16 @@ public class TypeConvert {
 
   public static String toJson(Object value) {
     try {
-      return OBJECT_MAPPER.writer().writeValueAsString(value);
+      return writerFor(value).writeValueAsString(value);
     } catch (JsonProcessingException e) {
       throw new IllegalArgumentException("Unable to serialize to json", e);
     }
   }
 
+  private static ObjectWriter writerFor(Object value) {
+    return (value == null) ? OBJECT_MAPPER.writer() : writer(value.getClass());
+  }
+
   private static boolean isUrlEncodedForm(Context context) {
     String contentType = context.getHeader("Content-Type");
     return (contentType != null) && (contentType.contains("application/x-www-form-urlencoded"));
@@ -15,6 +15,7 @@
  */
 package net.codestory.http.filters.basic;
 
+import static java.nio.charset.StandardCharsets.*;
 import static net.codestory.http.constants.Headers.*;
 
 import java.io.*;
@@ -25,17 +26,21 @@ import net.codestory.http.internal.*;
 import net.codestory.http.payload.*;
 import net.codestory.http.security.*;
 
-import org.simpleframework.http.parse.*;
-
 public class BasicAuthFilter implements Filter {
   private final String uriPrefix;
   private final String realm;
   private final CheckPassword checkPassword;
+  private final CredentialsCache cache;
 
   public BasicAuthFilter(String uriPrefix, String realm, CheckPassword checkPassword) {
+    this(uriPrefix, realm, checkPassword, null);
+  }
+
+  public BasicAuthFilter(String uriPrefix, String realm, CheckPassword checkPassword, CredentialsCache cache) {
     this.uriPrefix = uriPrefix;
     this.realm = realm;
     this.checkPassword = checkPassword;
+    this.cache = cache;
   }
 
   public BasicAuthFilter(String uriPrefix, String realm, Map<String, String> users) {
@@ -53,15 +58,45 @@ public class BasicAuthFilter implements Filter {
       return Payload.unauthorized(realm);
     }
 
-    PrincipalParser parser = new PrincipalParser(authorizationHeader);
-    String login = parser.getName();
-    String password = parser.getPassword();
+    String cachedLogin = (cache == null) ? null : cache.verifiedLogin(authorizationHeader);
+    if (cachedLogin != null) {
+      context.setCurrentUser(cachedLogin);
+      return nextFilter.get();
+    }
+
+    String[] credentials = credentials(authorizationHeader);
+    if (credentials == null) {
+      return Payload.unauthorized(realm);
+    }
+
+    String login = credentials[0];
+    String password = credentials[1];
     if (!checkPassword.check(login, password)) {
       return Payload.unauthorized(realm);
     }
 
+    if (cache != null) {
+      cache.verified(authorizationHeader, login);
+    }
     context.setCurrentUser(login);
 
     return nextFilter.get();
   }
+
+  private static String[] credentials(String authorizationHeader) {
+    String header = authorizationHeader.trim();
+    if (!header.regionMatches(true, 0, "Basic ", 0, 6)) {
+      return null;
+    }
+
+    String decoded;
+    try {
+      decoded = new String(Base64.getDecoder().decode(header.substring(6).trim()), ISO_8859_1);
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+
+    int colon = decoded.indexOf(':');
+    return (colon < 0) ? null : new String[]{decoded.substring(0, colon), decoded.substring(colon + 1)};
+  }
 }
@@ -0,0 +1,112 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.filters.basic;
+
+import static java.nio.charset.StandardCharsets.*;
+
+import java.security.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import javax.crypto.*;
+import javax.crypto.spec.*;
+
+import net.codestory.http.misc.*;
+
+// Remembers Authorization headers that passed the password check. Headers are only kept as HMACs, under a random per cache key
+public class CredentialsCache {
+  private static final String HMAC = "HmacSHA256";
+
+  private final long ttlMillis;
+  private final int maxSize;
+  private final SecretKeySpec secret;
+  private final LinkedHashMap<String, Verified> entries;
+
+  public CredentialsCache(long ttl, TimeUnit unit, int maxSize) {
+    this.ttlMillis = unit.toMillis(ttl);
+    this.maxSize = maxSize;
+    this.secret = new SecretKeySpec(randomKey(), HMAC);
+    this.entries = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  String verifiedLogin(String authorizationHeader) {
+    String key = key(authorizationHeader);
+
+    synchronized (this) {
+      Verified verified = entries.get(key);
+      if (verified == null) {
+        return null;
+      }
+      if (System.currentTimeMillis() >= verified.expires) {
+        entries.remove(key);
+        return null;
+      }
+      return verified.login;
+    }
+  }
+
+  void verified(String authorizationHeader, String login) {
+    String key = key(authorizationHeader);
+
+    synchronized (this) {
+      entries.put(key, new Verified(login, System.currentTimeMillis() + ttlMillis));
+
+      Iterator<Verified> eldest = entries.values().iterator();
+      while (entries.size() > maxSize) {
+        eldest.next();
+        eldest.remove();
+      }
+    }
+  }
+
+  public synchronized void invalidate(String login) {
+    entries.values().removeIf(verified -> verified.login.equals(login));
+  }
+
+  public synchronized void invalidateAll() {
+    entries.clear();
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  private String key(String authorizationHeader) {
+    try {
+      Mac mac = Mac.getInstance(HMAC);
+      mac.init(secret);
+      return Hexa.toHex(mac.doFinal(authorizationHeader.getBytes(ISO_8859_1)));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Unable to compute hmac", e);
+    }
+  }
+
+  private static byte[] randomKey() {
+    byte[] key = new byte[32];
+    new SecureRandom().nextBytes(key);
+    return key;
+  }
+
+  private static class Verified {
+    private final String login;
+    private final long expires;
+
+    private Verified(String login, long expires) {
+      this.login = login;
+      this.expires = expires;
+    }
+  }
+}
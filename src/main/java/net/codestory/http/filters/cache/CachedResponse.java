@@ -0,0 +1,111 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.filters.cache;
+
+import static net.codestory.http.constants.Headers.*;
+import static net.codestory.http.constants.HttpStatus.*;
+
+import java.io.*;
+import java.util.*;
+
+import net.codestory.http.internal.*;
+import net.codestory.http.payload.*;
+
+class CachedResponse {
+  private final String uri;
+  private final String contentType;
+  private final Map<String, String> headers;
+  private final PreparedBody body;
+  private final long size;
+  private final long expires;
+
+  private CachedResponse(String uri, String contentType, Map<String, String> headers, PreparedBody body, long expires) {
+    this.uri = uri;
+    this.contentType = contentType;
+    this.headers = new LinkedHashMap<>(headers);
+    this.body = body;
+    this.size = body.size(); // Gzipping later on must not change the accounted size
+    this.expires = expires;
+  }
+
+  static boolean isShareable(Payload payload) {
+    if ((payload.code() != OK) || !payload.cookies().isEmpty()) {
+      return false;
+    }
+
+    Object content = payload.rawContent();
+    if ((content == null) || (content instanceof EventStream) || payload.isStreamed()) {
+      return false;
+    }
+
+    String cacheControl = payload.headers().get(CACHE_CONTROL);
+    return (cacheControl == null) || !cacheControl.toLowerCase().contains("private");
+  }
+
+  static CachedResponse of(String uri, Context context, Payload payload, boolean precompress, long expires) throws IOException {
+    byte[] data = payload.getData(uri, context);
+    String contentType = payload.getContentType(uri);
+
+    return new CachedResponse(uri, contentType, payload.headers(), new PreparedBody(data, precompress), expires);
+  }
+
+  static String uriKey(String uri, Context context) {
+    return uri + "?" + new TreeMap<>(context.keyValues());
+  }
+
+  static String key(String uriKey, List<String> vary, Context context) {
+    if (vary == null) {
+      return uriKey;
+    }
+
+    StringBuilder key = new StringBuilder(uriKey);
+    for (String header : vary) {
+      key.append('|').append(header).append('=').append(context.getHeader(header));
+    }
+    return key.toString();
+  }
+
+  String uri() {
+    return uri;
+  }
+
+  boolean isExpired() {
+    return System.currentTimeMillis() >= expires;
+  }
+
+  long size() {
+    return size;
+  }
+
+  List<String> vary() {
+    String vary = headers.get(VARY);
+    if (vary == null) {
+      return null;
+    }
+
+    List<String> names = new ArrayList<>();
+    for (String name : vary.split(",")) {
+      if (!name.trim().isEmpty()) {
+        names.add(name.trim());
+      }
+    }
+    return names;
+  }
+
+  Payload toPayload() {
+    return new Payload(contentType, body, OK).withHeaders(headers);
+  }
+}
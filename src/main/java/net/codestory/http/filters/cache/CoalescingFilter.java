@@ -0,0 +1,99 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.filters.cache;
+
+import static net.codestory.http.constants.Headers.*;
+import static net.codestory.http.constants.Methods.*;
+
+import java.io.*;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import net.codestory.http.filters.*;
+import net.codestory.http.internal.*;
+import net.codestory.http.payload.*;
+
+public class CoalescingFilter implements Filter {
+  private final long maxWait;
+  private final List<UriParser> uriPatterns;
+  private final ConcurrentMap<String, List<String>> varyByUri;
+  private final InFlight<CachedResponse> inFlight;
+
+  public CoalescingFilter(Duration maxWait, String... uriPatterns) {
+    this.maxWait = maxWait.toMillis();
+    this.uriPatterns = new ArrayList<>();
+    this.varyByUri = new ConcurrentHashMap<>();
+    this.inFlight = new InFlight<>();
+
+    for (String uriPattern : uriPatterns) {
+      this.uriPatterns.add(new UriParser(uriPattern));
+    }
+  }
+
+  @Override
+  public Payload apply(String uri, Context context, PayloadSupplier nextFilter) throws IOException {
+    if (!GET.equalsIgnoreCase(context.method()) || !matches(uri)) {
+      return nextFilter.get(); // Ignore
+    }
+    if ((context.getHeader(AUTHORIZATION) != null) || (context.getHeader(COOKIE) != null)) {
+      return nextFilter.get(); // Might be a personalized response
+    }
+
+    String uriKey = CachedResponse.uriKey(uri, context);
+    List<String> vary = varyByUri.get(uriKey);
+    String key = CachedResponse.key(uriKey, vary, context);
+
+    CompletableFuture<CachedResponse> pending = inFlight.pending(key);
+    if (pending != null) {
+      CachedResponse shared = inFlight.await(pending, maxWait);
+      return (shared != null) ? shared.toPayload() : nextFilter.get();
+    }
+
+    CachedResponse shared = null;
+    try {
+      Payload payload = nextFilter.get();
+      if (!CachedResponse.isShareable(payload)) {
+        return payload;
+      }
+
+      CachedResponse computed = CachedResponse.of(uri, context, payload, false, 0L);
+
+      List<String> responseVary = computed.vary();
+      if (Objects.equals(responseVary, vary)) {
+        shared = computed;
+      } else if (responseVary == null) {
+        varyByUri.remove(uriKey);
+      } else {
+        // Waiting requests might have other values for these headers
+        varyByUri.put(uriKey, responseVary);
+      }
+
+      return computed.toPayload();
+    } finally {
+      inFlight.complete(key, shared);
+    }
+  }
+
+  private boolean matches(String uri) {
+    for (UriParser uriPattern : uriPatterns) {
+      if (uriPattern.matches(uri)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,45 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.filters.cache;
+
+import java.util.concurrent.*;
+
+class InFlight<T> {
+  private final ConcurrentMap<String, CompletableFuture<T>> computations = new ConcurrentHashMap<>();
+
+  // Returns the computation to wait for, or null if the caller is in charge of computing and completing it
+  CompletableFuture<T> pending(String key) {
+    return computations.putIfAbsent(key, new CompletableFuture<>());
+  }
+
+  void complete(String key, T shared) {
+    CompletableFuture<T> computation = computations.remove(key);
+    if (computation != null) {
+      computation.complete(shared);
+    }
+  }
+
+  T await(CompletableFuture<T> pending, long timeoutInMillis) {
+    try {
+      return pending.get(timeoutInMillis, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    } catch (ExecutionException | TimeoutException e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,192 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.filters.cache;
+
+import static net.codestory.http.constants.Headers.*;
+import static net.codestory.http.constants.Methods.*;
+
+import java.io.*;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.regex.*;
+
+import net.codestory.http.filters.*;
+import net.codestory.http.internal.*;
+import net.codestory.http.payload.*;
+
+public class ResponseCacheFilter implements Filter {
+  private static final Pattern MAX_AGE = Pattern.compile("max-age\\s*=\\s*(\\d+)");
+  private static final Duration DEFAULT_MAX_WAIT = Duration.ofSeconds(5);
+
+  private final String uriPrefix;
+  private final long maxSize;
+  private final boolean precompress;
+  private final long maxWait;
+  private final LinkedHashMap<String, CachedResponse> entries;
+  private final ConcurrentMap<String, List<String>> varyByUri;
+  private final InFlight<CachedResponse> inFlight;
+  private long size;
+
+  public ResponseCacheFilter(long maxSize) {
+    this("/", maxSize, true);
+  }
+
+  public ResponseCacheFilter(String uriPrefix, long maxSize, boolean precompress) {
+    this(uriPrefix, maxSize, precompress, DEFAULT_MAX_WAIT);
+  }
+
+  // Concurrent misses wait at most maxWait for the first one, then compute their own response
+  public ResponseCacheFilter(String uriPrefix, long maxSize, boolean precompress, Duration maxWait) {
+    this.uriPrefix = uriPrefix;
+    this.maxSize = maxSize;
+    this.precompress = precompress;
+    this.maxWait = maxWait.toMillis();
+    this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    this.varyByUri = new ConcurrentHashMap<>();
+    this.inFlight = new InFlight<>();
+  }
+
+  @Override
+  public Payload apply(String uri, Context context, PayloadSupplier nextFilter) throws IOException {
+    if (!GET.equalsIgnoreCase(context.method()) || !uri.startsWith(uriPrefix)) {
+      return nextFilter.get(); // Ignore
+    }
+    if ((context.getHeader(AUTHORIZATION) != null) || (context.getHeader(COOKIE) != null)) {
+      return nextFilter.get(); // Might be a personalized response
+    }
+
+    String uriKey = CachedResponse.uriKey(uri, context);
+    List<String> vary = varyByUri.get(uriKey);
+    String key = CachedResponse.key(uriKey, vary, context);
+
+    CachedResponse cached = lookup(key);
+    if (cached != null) {
+      return cached.toPayload();
+    }
+
+    CompletableFuture<CachedResponse> pending = inFlight.pending(key);
+    if (pending != null) {
+      CachedResponse shared = inFlight.await(pending, maxWait);
+      return (shared != null) ? shared.toPayload() : nextFilter.get();
+    }
+
+    CachedResponse shared = null;
+    try {
+      Payload payload = nextFilter.get();
+
+      CachedResponse computed = toCacheable(uri, context, payload);
+      if (computed == null) {
+        return payload;
+      }
+
+      List<String> responseVary = computed.vary();
+      if (Objects.equals(responseVary, vary)) {
+        shared = computed;
+      } else if (responseVary == null) {
+        varyByUri.remove(uriKey);
+      } else {
+        // Waiting requests might have other values for these headers
+        varyByUri.put(uriKey, responseVary);
+      }
+
+      store(CachedResponse.key(uriKey, responseVary, context), computed);
+      return computed.toPayload();
+    } finally {
+      inFlight.complete(key, shared);
+    }
+  }
+
+  public synchronized void invalidate(String uri) {
+    Iterator<CachedResponse> iterator = entries.values().iterator();
+    while (iterator.hasNext()) {
+      CachedResponse response = iterator.next();
+      if (response.uri().equals(uri)) {
+        size -= response.size();
+        iterator.remove();
+      }
+    }
+  }
+
+  public synchronized void invalidateAll() {
+    entries.clear();
+    size = 0;
+  }
+
+  public synchronized long size() {
+    return size;
+  }
+
+  private synchronized CachedResponse lookup(String key) {
+    CachedResponse response = entries.get(key);
+    if ((response != null) && response.isExpired()) {
+      entries.remove(key);
+      size -= response.size();
+      return null;
+    }
+    return response;
+  }
+
+  private synchronized void store(String key, CachedResponse response) {
+    if (response.size() > maxSize) {
+      return;
+    }
+
+    CachedResponse previous = entries.put(key, response);
+    if (previous != null) {
+      size -= previous.size();
+    }
+    size += response.size();
+
+    Iterator<CachedResponse> eldest = entries.values().iterator();
+    while ((size > maxSize) && eldest.hasNext()) {
+      size -= eldest.next().size();
+      eldest.remove();
+    }
+  }
+
+  private CachedResponse toCacheable(String uri, Context context, Payload payload) throws IOException {
+    if (!CachedResponse.isShareable(payload)) {
+      return null;
+    }
+
+    long maxAge = maxAge(payload.headers().get(CACHE_CONTROL));
+    if (maxAge <= 0) {
+      return null;
+    }
+
+    String vary = payload.headers().get(VARY);
+    if ((vary != null) && vary.contains("*")) {
+      return null;
+    }
+
+    return CachedResponse.of(uri, context, payload, precompress, System.currentTimeMillis() + (maxAge * 1000L));
+  }
+
+  private static long maxAge(String cacheControl) {
+    if (cacheControl == null) {
+      return 0;
+    }
+
+    String directives = cacheControl.toLowerCase();
+    if (directives.contains("no-store") || directives.contains("no-cache") || directives.contains("private")) {
+      return 0;
+    }
+
+    Matcher matcher = MAX_AGE.matcher(directives);
+    return matcher.find() ? Long.parseLong(matcher.group(1)) : 0;
+  }
+}
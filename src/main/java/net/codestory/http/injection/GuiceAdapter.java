@@ -15,16 +15,38 @@
  */
 package net.codestory.http.injection;
 
+import static net.codestory.http.misc.MemoizingSupplier.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+
 import com.google.inject.*;
 
 public class GuiceAdapter implements IocAdapter {
   private final Injector injector;
+  private final Map<Class<?>, Provider<?>> providers;
 
   public GuiceAdapter(Module... modules) {
     injector = Guice.createInjector(modules);
+    providers = new ConcurrentHashMap<>();
   }
 
   public <T> T get(Class<T> type) {
-    return injector.getInstance(type);
+    return provider(type).get();
+  }
+
+  @Override
+  public <T> Supplier<T> supplier(Class<T> type) {
+    Provider<T> provider = provider(type);
+    if (Scopes.isSingleton(injector.getBinding(type))) {
+      return memoize(provider::get);
+    }
+    return provider::get;
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> Provider<T> provider(Class<T> type) {
+    return (Provider<T>) providers.computeIfAbsent(type, injector::getProvider);
   }
 }
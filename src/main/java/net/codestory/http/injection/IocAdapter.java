@@ -16,7 +16,12 @@
 package net.codestory.http.injection;
 
 import java.io.*;
+import java.util.function.*;
 
 public interface IocAdapter extends Serializable {
   <T> T get(Class<T> type);
+
+  default <T> Supplier<T> supplier(Class<T> type) {
+    return () -> get(type);
+  }
 }
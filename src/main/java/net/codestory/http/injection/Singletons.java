@@ -15,8 +15,11 @@
  */
 package net.codestory.http.injection;
 
+import static net.codestory.http.misc.MemoizingSupplier.*;
+
 import java.lang.reflect.*;
 import java.util.*;
+import java.util.function.*;
 
 public class Singletons implements IocAdapter {
   private final Map<Class<?>, Object> singletons;
@@ -38,6 +41,11 @@ public class Singletons implements IocAdapter {
     return _get(type, new HashSet<>());
   }
 
+  @Override
+  public <T> Supplier<T> supplier(Class<T> type) {
+    return memoize(() -> get(type));
+  }
+
   @SuppressWarnings("unchecked")
   private <T> T _get(Class<T> type, Set<Class<?>> seenTypes) {
     if (!seenTypes.add(type)) {
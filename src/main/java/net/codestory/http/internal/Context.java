@@ -18,34 +18,40 @@ package net.codestory.http.internal;
 import static net.codestory.http.constants.Headers.*;
 
 import java.io.*;
+import java.nio.charset.*;
 import java.util.*;
+import java.util.concurrent.atomic.*;
 
 import net.codestory.http.convert.*;
+import net.codestory.http.errors.*;
 import net.codestory.http.injection.*;
 import net.codestory.http.io.*;
+import net.codestory.http.misc.*;
+import net.codestory.http.transport.*;
 
 import org.simpleframework.http.*;
 
 public class Context {
-  private final Request request;
-  private final Response response;
+  private final HttpRequest request;
+  private final HttpResponse response;
   private final IocAdapter iocAdapter;
-  private final Query query;
   private String currentUser;
+  private boolean async;
+  private final AtomicReference<Runnable> onAsyncComplete = new AtomicReference<>();
+  private long maxBodySize = Env.INSTANCE.maxBodySize();
 
-  public Context(Request request, Response response, IocAdapter iocAdapter) {
+  public Context(HttpRequest request, HttpResponse response, IocAdapter iocAdapter) {
     this.request = request;
     this.response = response;
     this.iocAdapter = iocAdapter;
-    this.query = request.getQuery();
   }
 
   public String uri() {
-    return request.getPath().getPath();
+    return request.uri();
   }
 
   public Cookie cookie(String name) {
-    return request.getCookie(name);
+    return request.cookie(name);
   }
 
   public String cookieValue(String name) {
@@ -86,72 +92,117 @@ public class Context {
   }
 
   public List<Cookie> cookies() {
-    return request.getCookies();
+    return request.cookies();
   }
 
   public String get(String name) {
-    return query.get(name);
+    return request.parameter(name);
   }
 
   public List<String> getAll(String name) {
-    return query.getAll(name);
+    return request.parameters(name);
   }
 
   public int getInteger(String name) {
-    return query.getInteger(name);
+    String value = get(name);
+    return (value == null) ? 0 : Integer.parseInt(value);
   }
 
   public float getFloat(String name) {
-    return query.getFloat(name);
+    String value = get(name);
+    return (value == null) ? 0 : Float.parseFloat(value);
   }
 
   public boolean getBoolean(String name) {
-    return query.getBoolean(name);
+    return Boolean.parseBoolean(get(name));
   }
 
   public String getHeader(String name) {
-    return request.getValue(name);
+    return request.header(name);
   }
 
   public List<String> getHeaders(String name) {
-    return request.getValues(name);
+    return request.headers(name);
   }
 
   public String method() {
-    return request.getMethod();
+    return request.method();
   }
 
   public Map<String, String> keyValues() {
-    return query;
+    return request.parameters();
   }
 
   public String getClientAddress() {
     String forwarded = getHeader(X_FORWARDED_FOR);
-    return (forwarded != null) ? forwarded : request.getClientAddress().toString();
+    return (forwarded != null) ? forwarded : request.clientAddress().toString();
   }
 
-  public Request request() {
+  public HttpRequest request() {
     return request;
   }
 
-  public Response response() {
+  public HttpResponse response() {
     return response;
   }
 
+  public void setMaxBodySize(long maxBodySize) {
+    this.maxBodySize = maxBodySize;
+  }
+
+  public long maxBodySize() {
+    return maxBodySize;
+  }
+
+  // Decompressed on the fly and limited to maxBodySize() bytes, once decompressed
+  public InputStream inputStream() throws IOException {
+    String contentLength = getHeader(CONTENT_LENGTH);
+    if ((contentLength != null) && (contentLength(contentLength) > maxBodySize)) {
+      throw new RequestEntityTooLargeException();
+    }
+
+    InputStream input = request.inputStream();
+    String contentEncoding = getHeader(CONTENT_ENCODING);
+    if ((contentEncoding != null) && contentEncoding.trim().equalsIgnoreCase("gzip")) {
+      input = new GzipBodyInputStream(input);
+    }
+
+    return (maxBodySize == Long.MAX_VALUE) ? input : new LimitedInputStream(input, maxBodySize);
+  }
+
+  private static long contentLength(String header) {
+    try {
+      return Long.parseLong(header.trim());
+    } catch (NumberFormatException e) {
+      throw new BadRequestException();
+    }
+  }
+
   public byte[] content() {
     try {
-      return InputStreams.readBytes(request.getInputStream());
+      return InputStreams.readBytes(inputStream());
     } catch (IOException e) {
       throw new IllegalStateException("Unable to read content", e);
     }
   }
 
   public String contentAsString() {
-    try {
-      return request.getContent();
-    } catch (IOException e) {
-      throw new IllegalStateException("Unable to read content", e);
+    return new String(content(), charset());
+  }
+
+  private Charset charset() {
+    String contentType = getHeader(CONTENT_TYPE);
+    if (contentType != null) {
+      int index = contentType.toLowerCase().indexOf("charset=");
+      if (index >= 0) {
+        try {
+          return Charset.forName(contentType.substring(index + 8).replace("\"", "").trim());
+        } catch (IllegalArgumentException e) {
+          // Fallback to UTF-8
+        }
+      }
     }
+    return StandardCharsets.UTF_8;
   }
 
   public <T> T contentAs(Class<T> type) {
@@ -169,4 +220,23 @@ public class Context {
   public String currentUser() {
     return currentUser;
   }
+
+  public void startAsync() {
+    this.async = true;
+  }
+
+  public boolean isAsync() {
+    return async;
+  }
+
+  public void onAsyncComplete(Runnable listener) {
+    onAsyncComplete.set(listener);
+  }
+
+  public void completeAsync() {
+    Runnable listener = onAsyncComplete.getAndSet(null);
+    if (listener != null) {
+      listener.run();
+    }
+  }
 }
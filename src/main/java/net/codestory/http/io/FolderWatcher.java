@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.io;
+
+import static java.nio.file.Files.*;
+import static java.nio.file.StandardWatchEventKinds.*;
+import static net.codestory.http.io.FileVisitor.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+import org.slf4j.*;
+
+import com.sun.nio.file.*;
+
+public class FolderWatcher {
+  private final static Logger LOG = LoggerFactory.getLogger(FolderWatcher.class);
+
+  private final List<Path> folders;
+  private final Listener listener;
+  private final Map<WatchKey, Path[]> rootAndFolderByKey;
+
+  public FolderWatcher(List<Path> folders, Listener listener) {
+    this.folders = folders;
+    this.listener = listener;
+    this.rootAndFolderByKey = new HashMap<>();
+  }
+
+  public void start() {
+    Thread thread = new Thread(this::watchChanges, "folder-watcher");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private void watchChanges() {
+    WatchService watcher;
+    try {
+      watcher = FileSystems.getDefault().newWatchService();
+      for (Path folder : folders) {
+        register(watcher, folder, folder);
+      }
+    } catch (IOException e) {
+      LOG.error("Unable to watch folders " + folders, e);
+      return;
+    }
+
+    while (true) {
+      WatchKey key;
+      try {
+        key = watcher.take();
+      } catch (InterruptedException e) {
+        return;
+      }
+
+      Path[] rootAndFolder = rootAndFolderByKey.get(key);
+      for (WatchEvent<?> event : key.pollEvents()) {
+        if (rootAndFolder != null) {
+          onEvent(watcher, rootAndFolder[0], rootAndFolder[1], event);
+        }
+      }
+
+      if (!key.reset()) {
+        rootAndFolderByKey.remove(key);
+      }
+    }
+  }
+
+  private void onEvent(WatchService watcher, Path root, Path folder, WatchEvent<?> event) {
+    try {
+      if (event.kind() == OVERFLOW) {
+        listener.onChange(root, root);
+        return;
+      }
+
+      Path changed = folder.resolve((Path) event.context());
+      if ((event.kind() == ENTRY_CREATE) && isDirectory(changed)) {
+        // Files might have been created before the new folder was registered
+        register(watcher, root, changed);
+        walkFileTree(changed, onFile(file -> listener.onChange(root, file)));
+      }
+
+      listener.onChange(root, changed);
+    } catch (IOException | RuntimeException e) {
+      LOG.error("Unable to handle change in " + folder, e);
+    }
+  }
+
+  private void register(WatchService watcher, Path root, Path folder) throws IOException {
+    walkFileTree(folder, onDirectory(dir -> {
+      WatchKey key = dir.register(watcher, new WatchEvent.Kind[]{ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE}, SensitivityWatchEventModifier.HIGH);
+      rootAndFolderByKey.put(key, new Path[]{root, dir});
+    }));
+  }
+
+  @FunctionalInterface
+  public static interface Listener extends Serializable {
+    void onChange(Path root, Path changed);
+  }
+}
@@ -0,0 +1,63 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.io;
+
+import java.io.*;
+import java.util.zip.*;
+
+import net.codestory.http.errors.*;
+
+// A corrupt or truncated gzip body is the client's fault
+public class GzipBodyInputStream extends FilterInputStream {
+  public GzipBodyInputStream(InputStream input) throws IOException {
+    super(gunzip(input));
+  }
+
+  private static InputStream gunzip(InputStream input) throws IOException {
+    try {
+      return new GZIPInputStream(input);
+    } catch (ZipException | EOFException e) {
+      throw new BadRequestException();
+    }
+  }
+
+  @Override
+  public int read() throws IOException {
+    try {
+      return super.read();
+    } catch (ZipException | EOFException e) {
+      throw new BadRequestException();
+    }
+  }
+
+  @Override
+  public int read(byte[] bytes, int offset, int length) throws IOException {
+    try {
+      return super.read(bytes, offset, length);
+    } catch (ZipException | EOFException e) {
+      throw new BadRequestException();
+    }
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    try {
+      return super.skip(n);
+    } catch (ZipException | EOFException e) {
+      throw new BadRequestException();
+    }
+  }
+}
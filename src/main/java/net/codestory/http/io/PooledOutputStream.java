@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.io;
+
+import java.io.*;
+import java.nio.*;
+
+// One buffer per thread, reused across requests. Call release() when done.
+public class PooledOutputStream extends ByteArrayOutputStream {
+  private static final int INITIAL_SIZE = 8 * 1024;
+  private static final int MAX_POOLED_SIZE = 1024 * 1024;
+  private static final ThreadLocal<PooledOutputStream> POOL = ThreadLocal.withInitial(PooledOutputStream::new);
+
+  private boolean inUse;
+
+  private PooledOutputStream() {
+    super(INITIAL_SIZE);
+  }
+
+  public static PooledOutputStream acquire() {
+    PooledOutputStream output = POOL.get();
+    if (output.inUse) {
+      return new PooledOutputStream();
+    }
+
+    output.inUse = true;
+    output.reset();
+    return output;
+  }
+
+  public void release() {
+    inUse = false;
+    if ((buf.length > MAX_POOLED_SIZE) && (POOL.get() == this)) {
+      POOL.remove();
+    }
+  }
+
+  public ByteBuffer view() {
+    return ByteBuffer.wrap(buf, 0, count);
+  }
+
+  public void copyTo(OutputStream output) throws IOException {
+    output.write(buf, 0, count);
+  }
+}
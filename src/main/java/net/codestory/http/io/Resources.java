@@ -57,6 +57,29 @@ public class Resources {
     return paths;
   }
 
+  public static List<Path> folders() {
+    List<Path> folders = new ArrayList<>();
+
+    if (!Env.INSTANCE.disableClassPath()) {
+      try {
+        for (URL url : Collections.list(ClassLoader.getSystemResources(ROOT))) {
+          File file = fileForClasspath(url);
+          if ((file != null) && file.isDirectory()) {
+            folders.add(file.toPath());
+          }
+        }
+      } catch (IOException e) {
+        // Ignore
+      }
+    }
+
+    if (!Env.INSTANCE.disableFilesystem() && new File(ROOT).isDirectory()) {
+      folders.add(Paths.get(ROOT));
+    }
+
+    return folders;
+  }
+
   public static String relativePath(Path parent, Path path) {
     return parent.relativize(path).toString().replace('\\', '/');
   }
@@ -88,6 +111,51 @@ public class Resources {
     return existsInFileSystem(pathWithPrefix) || existsInClassPath(pathWithPrefix);
   }
 
+  public static boolean isDirectory(Path path) {
+    String pathWithPrefix = withPrefix(path);
+    if (new File(pathWithPrefix).isDirectory()) {
+      return true;
+    }
+
+    URL url = ClassLoader.getSystemResource(pathWithPrefix);
+    if (url == null) {
+      return false;
+    }
+
+    File file = fileForClasspath(url);
+    return (file != null) && file.isDirectory();
+  }
+
+  public static File fileFor(Path path) {
+    String pathWithPrefix = withPrefix(path);
+    if (existsInFileSystem(pathWithPrefix)) {
+      return new File(pathWithPrefix);
+    }
+
+    URL url = ClassLoader.getSystemResource(pathWithPrefix);
+    if (url == null) {
+      return null;
+    }
+
+    File file = fileForClasspath(url);
+    return ((file != null) && file.isFile()) ? file : null;
+  }
+
+  public static long lastModified(Path path) {
+    String pathWithPrefix = withPrefix(path);
+    if (existsInFileSystem(pathWithPrefix)) {
+      return new File(pathWithPrefix).lastModified();
+    }
+
+    URL url = ClassLoader.getSystemResource(pathWithPrefix);
+    if (url == null) {
+      return 0L;
+    }
+
+    File file = fileForClasspath(url);
+    return (file == null) ? 0L : file.lastModified();
+  }
+
   public static String read(Path path, Charset charset) throws IOException {
     String pathWithPrefix = withPrefix(path);
     return existsInFileSystem(pathWithPrefix) ? readFile(pathWithPrefix, charset) : readClasspath(pathWithPrefix, charset);
@@ -22,12 +22,20 @@ public enum Env {
   private final boolean disableClassPath;
   private final boolean disableFilesystem;
   private final boolean disableGzip;
+  private final boolean precompileAssets;
+  private final boolean waitForPrecompilation;
+  private final String transport;
+  private final long maxBodySize;
 
   private Env() {
     prodMode = getBoolean("PROD_MODE", false);
     disableClassPath = getBoolean("http.disable.classpath", false);
     disableFilesystem = getBoolean("http.disable.filesystem", false);
     disableGzip = getBoolean("http.disable.gzipm", false);
+    precompileAssets = getBoolean("http.precompile", false);
+    waitForPrecompilation = getBoolean("http.precompile.wait", false);
+    transport = getString("http.transport", "simple");
+    maxBodySize = getLong("http.max.body.size", Long.MAX_VALUE);
   }
 
   public boolean prodMode() {
@@ -50,11 +58,32 @@ public enum Env {
     return disableGzip;
   }
 
+  public boolean precompileAssets() {
+    return precompileAssets;
+  }
+
+  public boolean waitForPrecompilation() {
+    return waitForPrecompilation;
+  }
+
+  public String transport() {
+    return transport;
+  }
+
+  public long maxBodySize() {
+    return maxBodySize;
+  }
+
   private static String get(String propertyName) {
     String env = System.getenv(propertyName);
     return (env != null) ? env : System.getProperty(propertyName);
   }
 
+  private static String getString(String propertyName, String defaultValue) {
+    String value = get(propertyName);
+    return (value == null) ? defaultValue : value;
+  }
+
   private static boolean getBoolean(String propertyName, boolean defaultValue) {
     String value = get(propertyName);
     return (value == null) ? defaultValue : Boolean.parseBoolean(value);
@@ -64,4 +93,9 @@ public enum Env {
     String value = get(propertyName);
     return (value == null) ? defaultValue : Integer.parseInt(value);
   }
+
+  private static long getLong(String propertyName, long defaultValue) {
+    String value = get(propertyName);
+    return (value == null) ? defaultValue : Long.parseLong(value);
+  }
 }
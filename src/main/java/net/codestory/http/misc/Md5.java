@@ -15,6 +15,7 @@
  */
 package net.codestory.http.misc;
 
+import java.nio.*;
 import java.security.*;
 
 public class Md5 {
@@ -29,4 +30,14 @@ public class Md5 {
       throw new IllegalStateException("Unable to compute md5", e);
     }
   }
+
+  public static String of(ByteBuffer data) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("MD5");
+      digest.update(data.duplicate());
+      return Hexa.toHex(digest.digest());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("Unable to compute md5", e);
+    }
+  }
 }
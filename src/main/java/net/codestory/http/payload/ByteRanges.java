@@ -0,0 +1,132 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.payload;
+
+import static java.nio.charset.StandardCharsets.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+
+class ByteRanges {
+  private static final int MAX_RANGES = 16;
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private ByteRanges() {
+    // Static class
+  }
+
+  // Returns null if the header should be ignored and an empty list if no range can be satisfied
+  static List<long[]> parse(String header, long length) {
+    if (!header.startsWith("bytes=")) {
+      return null;
+    }
+
+    String[] specs = header.substring(6).split(",");
+    if (specs.length > MAX_RANGES) {
+      return null;
+    }
+
+    List<long[]> ranges = new ArrayList<>();
+    for (String spec : specs) {
+      String trimmed = spec.trim();
+      int dashIndex = trimmed.indexOf('-');
+      if (dashIndex < 0) {
+        return null;
+      }
+
+      String first = trimmed.substring(0, dashIndex);
+      String last = trimmed.substring(dashIndex + 1);
+
+      long start;
+      long end;
+      try {
+        if (first.isEmpty()) {
+          long suffix = Long.parseLong(last);
+          if (suffix < 0) {
+            return null;
+          }
+          start = Math.max(0, length - suffix);
+          end = length - 1;
+        } else {
+          start = Long.parseLong(first);
+          end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+          if ((start < 0) || (end < start)) {
+            return null;
+          }
+          end = Math.min(end, length - 1);
+        }
+      } catch (NumberFormatException e) {
+        return null;
+      }
+
+      if ((start < length) && (start <= end)) {
+        ranges.add(new long[]{start, end});
+      }
+    }
+
+    return ranges;
+  }
+
+  static String contentRange(long[] range, long length) {
+    return "bytes " + range[0] + "-" + range[1] + "/" + length;
+  }
+
+  static String partHeader(String boundary, String contentType, long[] range, long length) {
+    return "\r\n--" + boundary + "\r\nContent-Type: " + contentType + "\r\nContent-Range: " + contentRange(range, length) + "\r\n\r\n";
+  }
+
+  static String closingBoundary(String boundary) {
+    return "\r\n--" + boundary + "--\r\n";
+  }
+
+  static long multipartLength(String boundary, String contentType, List<long[]> ranges, long length) {
+    long total = closingBoundary(boundary).length();
+    for (long[] range : ranges) {
+      total += partHeader(boundary, contentType, range, length).getBytes(US_ASCII).length + (range[1] - range[0] + 1);
+    }
+    return total;
+  }
+
+  static void write(byte[] data, long[] range, OutputStream output) throws IOException {
+    output.write(data, (int) range[0], (int) (range[1] - range[0] + 1));
+  }
+
+  // Positional reads don't move the channel, so a single channel serves every range
+  static void write(FileChannel channel, long[] range, OutputStream output) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(BUFFER_SIZE, range[1] - range[0] + 1));
+
+    long position = range[0];
+    while (position <= range[1]) {
+      buffer.clear();
+      buffer.limit((int) Math.min(buffer.capacity(), range[1] - position + 1));
+
+      int read = channel.read(buffer, position);
+      if (read < 0) {
+        throw new EOFException("Unexpected end of file");
+      }
+
+      output.write(buffer.array(), 0, read);
+      position += read;
+    }
+  }
+
+  static FileChannel open(File file) throws IOException {
+    return FileChannel.open(file.toPath(), StandardOpenOption.READ);
+  }
+}
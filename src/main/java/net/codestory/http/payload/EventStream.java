@@ -0,0 +1,107 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.payload;
+
+import java.io.*;
+import java.util.*;
+
+import net.codestory.http.transport.*;
+
+public class EventStream {
+  private final List<byte[]> pending = new ArrayList<>();
+  private HttpResponse response;
+  private OutputStream output;
+  private Runnable onClose;
+  private boolean closed;
+
+  public boolean send(Object data) {
+    return send(null, data);
+  }
+
+  public synchronized boolean send(String name, Object data) {
+    if (closed) {
+      return false;
+    }
+
+    byte[] event = ServerSentEvents.event(name, data);
+    if (output == null) {
+      pending.add(event);
+      return true;
+    }
+
+    return write(event);
+  }
+
+  public synchronized boolean isOpen() {
+    return !closed;
+  }
+
+  public synchronized void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    pending.clear();
+
+    if (response != null) {
+      try {
+        response.close();
+      } catch (IOException e) {
+        // Ignore
+      }
+    }
+    if (onClose != null) {
+      onClose.run();
+    }
+  }
+
+  synchronized void attach(HttpResponse response, Runnable onClose) throws IOException {
+    this.response = response;
+    this.onClose = onClose;
+
+    if (closed) {
+      response.close();
+      onClose.run();
+      return;
+    }
+
+    try {
+      output = response.outputStream();
+      output.flush();
+    } catch (IOException e) {
+      close();
+      throw e;
+    }
+    for (byte[] event : pending) {
+      if (!write(event)) {
+        break;
+      }
+    }
+    pending.clear();
+  }
+
+  // Blocks on a slow client: the producer gets back pressure from the socket
+  private boolean write(byte[] event) {
+    try {
+      output.write(event);
+      output.flush();
+      return true;
+    } catch (IOException e) {
+      close();
+      return false;
+    }
+  }
+}
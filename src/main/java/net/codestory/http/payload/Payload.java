@@ -19,14 +19,17 @@ import static java.nio.charset.StandardCharsets.*;
 import static net.codestory.http.constants.Encodings.*;
 import static net.codestory.http.constants.Headers.*;
 import static net.codestory.http.constants.HttpStatus.NOT_FOUND;
+import static net.codestory.http.constants.HttpStatus.NOT_MODIFIED;
 import static net.codestory.http.constants.Methods.*;
 import static net.codestory.http.io.Strings.*;
-import static org.simpleframework.http.Status.NOT_MODIFIED;
 
 import java.io.*;
 import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.stream.*;
 import java.util.zip.*;
 
 import net.codestory.http.compilers.*;
@@ -36,6 +39,7 @@ import net.codestory.http.internal.*;
 import net.codestory.http.io.*;
 import net.codestory.http.misc.*;
 import net.codestory.http.templating.*;
+import net.codestory.http.transport.*;
 import net.codestory.http.types.*;
 
 import org.simpleframework.http.*;
@@ -142,6 +146,10 @@ public class Payload {
     return content;
   }
 
+  public boolean isStreamed() {
+    return StreamedBody.isStreamed(content);
+  }
+
   public Map<String, String> headers() {
     return headers;
   }
@@ -214,6 +222,28 @@ public class Payload {
     return new Payload(HttpStatus.METHOD_NOT_ALLOWED);
   }
 
+  // Strings and byte arrays are hashed and gzipped once. Beans can be mutated, so they are serialized on each request
+  public static Object prepare(Object content) {
+    Payload payload = new Payload(content);
+    if (!payload.isConstant()) {
+      return content;
+    }
+
+    String type = payload.getContentType(null);
+    byte[] data = (payload.content instanceof byte[]) ? (byte[]) payload.content : forString((String) payload.content);
+
+    Payload prepared = new Payload(type, new PreparedBody(data, !Env.INSTANCE.disableGzip()), payload.code).withHeaders(payload.headers);
+    prepared.cookies.addAll(payload.cookies);
+    return prepared;
+  }
+
+  private boolean isConstant() {
+    if ((content == null) || (code == 204) || (code == 304) || (code < 200)) {
+      return false;
+    }
+    return (content instanceof String) || (content instanceof byte[]);
+  }
+
   // WTF?
   public boolean isBetter(Payload other) {
     if (HttpStatus.OK == code) {
@@ -229,9 +259,9 @@ public class Payload {
   }
 
   public void writeTo(Context context) throws IOException {
-    Response response = context.response();
+    HttpResponse response = context.response();
 
-    headers.forEach(response::setValue);
+    headers.forEach(response::setHeader);
     cookies.forEach(response::setCookie);
 
     long lastModified = getLastModified();
@@ -241,28 +271,58 @@ public class Payload {
         response.setStatus(NOT_MODIFIED);
         return;
       }
-      response.setValue(LAST_MODIFIED, Dates.to_rfc_1123(lastModified));
+      response.setHeader(LAST_MODIFIED, Dates.to_rfc_1123(lastModified));
     }
 
     if (content == null) {
-      response.setStatus(Status.getStatus(code));
+      response.setStatus(code);
       response.setContentLength(0);
       return;
     }
 
     final String uri = context.uri();
-    String type = getContentType(uri);
-    response.setValue(CONTENT_TYPE, type);
-    response.setStatus(Status.getStatus(code));
+    boolean streamed = StreamedBody.isStreamed(content);
+    String type = (streamed && (contentType == null)) ? StreamedBody.negotiate(context.getHeader(ACCEPT)) : getContentType(uri);
+    response.setHeader(CONTENT_TYPE, type);
+    response.setStatus(code);
 
     if (HEAD.equals(context.method()) || (code == 204) || (code == 304) || ((code >= 100) && (code < 200))) {
+      if (content instanceof EventStream) {
+        ((EventStream) content).close();
+      } else if (streamed) {
+        StreamedBody.close(content, null);
+      }
+      return;
+    }
+
+    if (content instanceof EventStream) {
+      response.setHeader(CACHE_CONTROL, "no-cache");
+      context.startAsync();
+      ((EventStream) content).attach(response, context::completeAsync);
+      return;
+    }
+    if (streamed) {
+      writeStream(context, type, response);
+      return;
+    }
+    if (isJson()) {
+      writeJson(context, response);
       return;
     }
 
     DataSupplier lazyData = DataSupplier.cache(() -> getData(uri, context));
+    File file = binaryFile();
     String etag = headers.get(ETAG);
     if (etag == null) {
-      etag = etag(lazyData.get());
+      if (file != null) {
+        etag = etag((file.getAbsolutePath() + ";" + file.length() + ";" + file.lastModified()).getBytes(UTF_8));
+      } else if (content instanceof PreparedBody) {
+        etag = ((PreparedBody) content).etag();
+      } else if (content instanceof CacheEntry) {
+        etag = ((CacheEntry) content).etag();
+      } else {
+        etag = etag(lazyData.get());
+      }
     }
 
     String previousEtag = stripQuotes(context.getHeader(IF_NONE_MATCH));
@@ -270,20 +330,50 @@ public class Payload {
       response.setStatus(NOT_MODIFIED);
       return;
     }
-    response.setValue(ETAG, etag);
+    response.setHeader(ETAG, etag);
+
+    if (isRangeable()) {
+      response.setHeader(ACCEPT_RANGES, "bytes");
 
-    byte[] data = lazyData.get();
+      String range = context.getHeader(RANGE);
+      if ((range != null) && ifRangeMatches(context.getHeader(IF_RANGE), etag, lastModified) && writeRanges(range, type, file, lazyData, response)) {
+        return;
+      }
+    }
 
     String acceptEncoding = context.getHeader(ACCEPT_ENCODING);
     if ((acceptEncoding != null) && acceptEncoding.contains(GZIP) && !Env.INSTANCE.disableGzip()) {
-      response.setValue(CONTENT_ENCODING, GZIP);
+      response.setHeader(CONTENT_ENCODING, GZIP);
+
+      if (content instanceof PreparedBody) {
+        byte[] gzipped = ((PreparedBody) content).gzipped();
+        response.setContentLength(gzipped.length);
+        response.outputStream().write(gzipped);
+        return;
+      }
 
-      GZIPOutputStream gzip = new GZIPOutputStream(response.getOutputStream());
-      gzip.write(data);
+      GZIPOutputStream gzip = new GZIPOutputStream(response.outputStream());
+      if (file != null) {
+        try (FileChannel channel = ByteRanges.open(file)) {
+          ByteRanges.write(channel, new long[]{0, file.length() - 1}, gzip);
+        }
+      } else {
+        gzip.write(lazyData.get());
+      }
       gzip.finish();
+    } else if (file != null) {
+      response.setContentLength(file.length());
+      try (FileChannel channel = ByteRanges.open(file)) {
+        ByteRanges.write(channel, new long[]{0, file.length() - 1}, response.outputStream());
+      }
+    } else if (content instanceof CacheEntry) {
+      CacheEntry entry = (CacheEntry) content;
+      response.setContentLength(entry.size());
+      entry.writeTo(response.channel());
     } else {
+      byte[] data = lazyData.get();
       response.setContentLength(data.length);
-      response.getOutputStream().write(data);
+      response.outputStream().write(data);
     }
   }
 
@@ -291,6 +381,127 @@ public class Payload {
     return Md5.of(data);
   }
 
+  protected String etag(ByteBuffer data) {
+    return Md5.of(data);
+  }
+
+  // Serialized into a per thread buffer, hashed and copied to the response without an intermediate byte[]
+  private void writeJson(Context context, HttpResponse response) throws IOException {
+    PooledOutputStream json = PooledOutputStream.acquire();
+    try {
+      TypeConvert.writeJson(content, json);
+
+      String etag = headers.get(ETAG);
+      if (etag == null) {
+        etag = etag(json.view());
+      }
+
+      String previousEtag = stripQuotes(context.getHeader(IF_NONE_MATCH));
+      if (etag.equals(previousEtag)) {
+        response.setStatus(NOT_MODIFIED);
+        return;
+      }
+      response.setHeader(ETAG, etag);
+
+      String acceptEncoding = context.getHeader(ACCEPT_ENCODING);
+      if ((acceptEncoding != null) && acceptEncoding.contains(GZIP) && !Env.INSTANCE.disableGzip()) {
+        response.setHeader(CONTENT_ENCODING, GZIP);
+
+        GZIPOutputStream gzip = new GZIPOutputStream(response.outputStream());
+        json.copyTo(gzip);
+        gzip.finish();
+      } else {
+        response.setContentLength(json.size());
+        json.copyTo(response.outputStream());
+      }
+    } finally {
+      json.release();
+    }
+  }
+
+  private boolean isJson() {
+    return !((content instanceof File) || (content instanceof Path) || (content instanceof byte[]) || (content instanceof String)
+        || (content instanceof CacheEntry) || (content instanceof PreparedBody) || (content instanceof InputStream)
+        || (content instanceof ModelAndView) || (content instanceof Model) || (content instanceof EventStream) || StreamedBody.isStreamed(content));
+  }
+
+  private boolean isRangeable() {
+    return (code == HttpStatus.OK) && ((content instanceof File) || (content instanceof Path) || (content instanceof byte[]) || (content instanceof CacheEntry) || (content instanceof PreparedBody));
+  }
+
+  // Binary files are served as is, so they can be read directly instead of being loaded in memory
+  private File binaryFile() {
+    Path path = (content instanceof File) ? ((File) content).toPath() : (content instanceof Path) ? (Path) content : null;
+    if ((path == null) || !ContentTypes.is_binary(path)) {
+      return null;
+    }
+    return Resources.fileFor(path);
+  }
+
+  private static boolean ifRangeMatches(String ifRange, String etag, long lastModified) {
+    if (ifRange == null) {
+      return true;
+    }
+    if (etag.equals(stripQuotes(ifRange))) {
+      return true;
+    }
+
+    try {
+      return (lastModified >= 0) && ((lastModified / 1000) == (Dates.parse_rfc_1123(ifRange) / 1000));
+    } catch (RuntimeException e) {
+      return false;
+    }
+  }
+
+  private static boolean writeRanges(String header, String type, File file, DataSupplier lazyData, HttpResponse response) throws IOException {
+    long length = (file != null) ? file.length() : lazyData.get().length;
+
+    List<long[]> ranges = ByteRanges.parse(header, length);
+    if (ranges == null) {
+      return false;
+    }
+
+    if (ranges.isEmpty()) {
+      response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+      response.setHeader(CONTENT_RANGE, "bytes */" + length);
+      response.setContentLength(0);
+      return true;
+    }
+
+    response.setStatus(HttpStatus.PARTIAL_CONTENT);
+    OutputStream output = response.outputStream();
+
+    try (FileChannel channel = (file != null) ? ByteRanges.open(file) : null) {
+      if (ranges.size() == 1) {
+        long[] range = ranges.get(0);
+        response.setHeader(CONTENT_RANGE, ByteRanges.contentRange(range, length));
+        response.setContentLength(range[1] - range[0] + 1);
+        writeRange(channel, lazyData, range, output);
+        return true;
+      }
+
+      String boundary = UUID.randomUUID().toString().replace("-", "");
+      response.setHeader(CONTENT_TYPE, "multipart/byteranges; boundary=" + boundary);
+      response.setContentLength(ByteRanges.multipartLength(boundary, type, ranges, length));
+
+      for (long[] range : ranges) {
+        output.write(ByteRanges.partHeader(boundary, type, range, length).getBytes(US_ASCII));
+        writeRange(channel, lazyData, range, output);
+      }
+      output.write(ByteRanges.closingBoundary(boundary).getBytes(US_ASCII));
+    }
+
+    return true;
+  }
+
+  private static void writeRange(FileChannel channel, DataSupplier lazyData, long[] range, OutputStream output) throws IOException {
+    if (channel != null) {
+      ByteRanges.write(channel, range, output);
+    } else {
+      ByteRanges.write(lazyData.get(), range, output);
+    }
+  }
+
   public String getContentType(String uri) {
     if (contentType != null) {
       return contentType;
@@ -312,7 +523,7 @@ public class Payload {
     if (content instanceof CacheEntry) {
       return "text/html;charset=UTF-8";
     }
-    if (content instanceof InputStream) {
+    if ((content instanceof InputStream) || (content instanceof PreparedBody)) {
       return "application/octet-stream";
     }
     if (content instanceof ModelAndView) {
@@ -323,6 +534,9 @@ public class Payload {
       Path path = Resources.findExistingPath(uri);
       return ContentTypes.get(path);
     }
+    if (content instanceof EventStream) {
+      return "text/event-stream";
+    }
     return "application/json;charset=UTF-8";
   }
 
@@ -345,6 +559,9 @@ public class Payload {
     if (content instanceof CacheEntry) {
       return ((CacheEntry) content).toBytes();
     }
+    if (content instanceof PreparedBody) {
+      return ((PreparedBody) content).data();
+    }
     if (content instanceof InputStream) {
       return forInputStream((InputStream) content);
     }
@@ -372,6 +589,36 @@ public class Payload {
     return -1;
   }
 
+  // Written with chunked encoding, without ETag, as the elements are produced
+  private void writeStream(Context context, String type, HttpResponse response) throws IOException {
+    boolean events = type.startsWith(StreamedBody.EVENTS);
+    if (events) {
+      response.setHeader(CACHE_CONTROL, "no-cache");
+    }
+
+    boolean gzip = false;
+    String acceptEncoding = context.getHeader(ACCEPT_ENCODING);
+    if (!events && (acceptEncoding != null) && acceptEncoding.contains(GZIP) && !Env.INSTANCE.disableGzip()) {
+      response.setHeader(CONTENT_ENCODING, GZIP);
+      gzip = true;
+    }
+
+    Iterator<?> iterator = null;
+    try {
+      iterator = StreamedBody.iterator(content);
+
+      OutputStream output = gzip ? new GZIPOutputStream(response.outputStream(), true) : response.outputStream();
+      StreamedBody.write(iterator, type, output);
+      if (gzip) {
+        ((GZIPOutputStream) output).finish();
+      }
+    } catch (IOException e) {
+      // Client went away
+    } finally {
+      StreamedBody.close(content, iterator);
+    }
+  }
+
   private static byte[] forString(String value) {
     return value.getBytes(UTF_8);
   }
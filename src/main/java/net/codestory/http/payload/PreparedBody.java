@@ -0,0 +1,64 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.payload;
+
+import java.io.*;
+import java.util.zip.*;
+
+import net.codestory.http.misc.*;
+
+public class PreparedBody {
+  private final byte[] data;
+  private final String etag;
+  private volatile byte[] gzipped;
+
+  public PreparedBody(byte[] data, boolean precompress) {
+    this.data = data;
+    this.etag = Md5.of(data);
+    if (precompress) {
+      this.gzipped = gzip(data);
+    }
+  }
+
+  public byte[] data() {
+    return data;
+  }
+
+  public String etag() {
+    return etag;
+  }
+
+  public byte[] gzipped() {
+    if (gzipped == null) {
+      gzipped = gzip(data);
+    }
+    return gzipped;
+  }
+
+  public long size() {
+    return data.length + ((gzipped == null) ? 0 : gzipped.length);
+  }
+
+  private static byte[] gzip(byte[] data) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length / 2);
+    try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+      gzip.write(data);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to gzip", e);
+    }
+    return bytes.toByteArray();
+  }
+}
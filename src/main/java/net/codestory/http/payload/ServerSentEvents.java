@@ -0,0 +1,41 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.payload;
+
+import static java.nio.charset.StandardCharsets.*;
+
+import net.codestory.http.convert.*;
+
+class ServerSentEvents {
+  private ServerSentEvents() {
+    // Static class
+  }
+
+  static byte[] event(String name, Object data) {
+    StringBuilder event = new StringBuilder();
+    if (name != null) {
+      event.append("event: ").append(name).append('\n');
+    }
+    for (String line : toText(data).split("\r?\n", -1)) {
+      event.append("data: ").append(line).append('\n');
+    }
+    return event.append('\n').toString().getBytes(UTF_8);
+  }
+
+  private static String toText(Object data) {
+    return (data instanceof String) ? (String) data : TypeConvert.toJson(data);
+  }
+}
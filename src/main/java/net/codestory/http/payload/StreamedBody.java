@@ -0,0 +1,133 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.payload;
+
+import java.io.*;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.*;
+
+import net.codestory.http.convert.*;
+import net.codestory.http.io.*;
+
+import com.fasterxml.jackson.databind.*;
+
+class StreamedBody {
+  static final String EVENTS = "text/event-stream";
+  static final String JSON_LINES = "application/x-ndjson";
+  static final String JSON_ARRAY = "application/json;charset=UTF-8";
+
+  private static final long FLUSH_INTERVAL = 200;
+
+  private StreamedBody() {
+    // Static class
+  }
+
+  static boolean isStreamed(Object content) {
+    if ((content instanceof Stream) || (content instanceof Iterator)) {
+      return true;
+    }
+    return (content instanceof Iterable) && !(content instanceof Collection) && !(content instanceof Path) && !(content instanceof JsonNode);
+  }
+
+  static String negotiate(String acceptHeader) {
+    if (acceptHeader != null) {
+      if (acceptHeader.contains(EVENTS)) {
+        return EVENTS;
+      }
+      if (acceptHeader.contains(JSON_LINES)) {
+        return JSON_LINES;
+      }
+    }
+    return JSON_ARRAY;
+  }
+
+  // Events are flushed one by one, json when the transport buffer is full or at most every 200ms between elements
+  static void write(Iterator<?> elements, String type, OutputStream output) throws IOException {
+    if (type.startsWith(EVENTS)) {
+      while (elements.hasNext()) {
+        output.write(ServerSentEvents.event(null, elements.next()));
+        output.flush();
+      }
+      return;
+    }
+
+    boolean array = !type.startsWith(JSON_LINES);
+    long lastFlush = System.currentTimeMillis();
+
+    PooledOutputStream json = PooledOutputStream.acquire();
+    try {
+      if (array) {
+        output.write('[');
+      }
+
+      boolean first = true;
+      while (elements.hasNext()) {
+        json.reset();
+        TypeConvert.writeJson(elements.next(), json);
+
+        if (array && !first) {
+          output.write(',');
+        }
+        json.copyTo(output);
+        if (!array) {
+          output.write('\n');
+        }
+        first = false;
+
+        long now = System.currentTimeMillis();
+        if ((now - lastFlush) >= FLUSH_INTERVAL) {
+          output.flush();
+          lastFlush = now;
+        }
+      }
+
+      if (array) {
+        output.write(']');
+      }
+      output.flush();
+    } finally {
+      json.release();
+    }
+  }
+
+  static Iterator<?> iterator(Object content) {
+    if (content instanceof Stream) {
+      return ((Stream<?>) content).iterator();
+    }
+    if (content instanceof Iterator) {
+      return (Iterator<?>) content;
+    }
+    return ((Iterable<?>) content).iterator();
+  }
+
+  static void close(Object content, Iterator<?> iterator) {
+    closeQuietly(content);
+    if (iterator != content) {
+      closeQuietly(iterator);
+    }
+  }
+
+  private static void closeQuietly(Object resource) {
+    if (resource instanceof AutoCloseable) {
+      try {
+        ((AutoCloseable) resource).close();
+      } catch (Exception e) {
+        // Ignore
+      }
+    }
+  }
+}
@@ -0,0 +1,289 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.processors;
+
+import static java.util.stream.Collectors.*;
+import static javax.lang.model.element.Modifier.*;
+import static javax.tools.Diagnostic.Kind.*;
+import static net.codestory.http.constants.Methods.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.function.*;
+
+import javax.annotation.processing.*;
+import javax.lang.model.*;
+import javax.lang.model.element.*;
+import javax.lang.model.type.*;
+import javax.lang.model.util.*;
+
+import net.codestory.http.annotations.*;
+
+// Generates a <Resource>_Routes table per resource class, with direct calls instead of reflection.
+//
+// It's registered in META-INF/services so it runs in every compilation that has this jar on its classpath.
+// Disable it with -Acodestory.routes=false, routes are then found by reflection.
+//
+@SupportedOptions(RoutesProcessor.ENABLED_OPTION)
+@SupportedAnnotationTypes({
+    "net.codestory.http.annotations.Get", "net.codestory.http.annotations.Gets",
+    "net.codestory.http.annotations.Post", "net.codestory.http.annotations.Posts",
+    "net.codestory.http.annotations.Put", "net.codestory.http.annotations.Puts",
+    "net.codestory.http.annotations.Delete", "net.codestory.http.annotations.Deletes",
+    "net.codestory.http.annotations.Head", "net.codestory.http.annotations.Heads"
+})
+public class RoutesProcessor extends AbstractProcessor {
+  static final String ENABLED_OPTION = "codestory.routes";
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    if ("false".equalsIgnoreCase(processingEnv.getOptions().get(ENABLED_OPTION))) {
+      return false;
+    }
+
+    Set<TypeElement> resources = new LinkedHashSet<>();
+    for (TypeElement annotation : annotations) {
+      for (Element method : roundEnv.getElementsAnnotatedWith(annotation)) {
+        Element type = method.getEnclosingElement();
+        if (type.getKind() == ElementKind.CLASS) {
+          resources.add((TypeElement) type);
+        }
+      }
+    }
+
+    for (TypeElement resource : resources) {
+      try {
+        generate(resource);
+      } catch (IOException e) {
+        processingEnv.getMessager().printMessage(ERROR, "Unable to generate routes: " + e.getMessage(), resource);
+      }
+    }
+
+    return false;
+  }
+
+  private void generate(TypeElement resource) throws IOException {
+    Elements elements = processingEnv.getElementUtils();
+    PackageElement pkg = elements.getPackageOf(resource);
+    if (!isAccessible(resource, pkg)) {
+      return;
+    }
+
+    Prefix prefixAnnotation = resource.getAnnotation(Prefix.class);
+    String prefix = (prefixAnnotation != null) ? prefixAnnotation.value() : "";
+
+    List<String> entries = new ArrayList<>();
+    for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(resource))) {
+      if (!method.getModifiers().contains(PUBLIC)) {
+        continue;
+      }
+
+      List<String> uriPatterns = new ArrayList<>();
+      List<String> httpMethods = new ArrayList<>();
+      collect(method.getAnnotationsByType(Get.class), Get::value, GET, prefix, httpMethods, uriPatterns);
+      collect(method.getAnnotationsByType(Post.class), Post::value, POST, prefix, httpMethods, uriPatterns);
+      collect(method.getAnnotationsByType(Put.class), Put::value, PUT, prefix, httpMethods, uriPatterns);
+      collect(method.getAnnotationsByType(Delete.class), Delete::value, DELETE, prefix, httpMethods, uriPatterns);
+      collect(method.getAnnotationsByType(Head.class), Head::value, HEAD, prefix, httpMethods, uriPatterns);
+      if (httpMethods.isEmpty()) {
+        continue;
+      }
+
+      String options = options(resource, method, pkg);
+      if (options == null) {
+        return;
+      }
+
+      for (int i = 0; i < httpMethods.size(); i++) {
+        entries.add("new net.codestory.http.routes.ResourceMethod(" + literal(httpMethods.get(i)) + ", " + literal(uriPatterns.get(i)) + ", "
+            + "new Class<?>[]{" + method.getParameters().stream().map(parameter -> erasure(parameter.asType()) + ".class").collect(joining(", ")) + "}, "
+            + erasure(method.getReturnType()) + ".class, "
+            + invoker(resource, method) + ")" + options);
+      }
+    }
+
+    if (entries.isEmpty()) {
+      return;
+    }
+
+    String binaryName = elements.getBinaryName(resource).toString();
+    int lastDot = binaryName.lastIndexOf('.');
+    String simpleName = binaryName.substring(lastDot + 1).replace('$', '_') + "_Routes";
+    String name = binaryName.substring(0, lastDot + 1) + simpleName;
+
+    try (PrintWriter writer = new PrintWriter(processingEnv.getFiler().createSourceFile(name, resource).openWriter())) {
+      if (!pkg.isUnnamed()) {
+        writer.println("package " + pkg.getQualifiedName() + ";");
+        writer.println();
+      }
+      writer.println("public final class " + simpleName + " implements net.codestory.http.routes.GeneratedRoutes {");
+      writer.println("  @Override");
+      writer.println("  public java.util.List<net.codestory.http.routes.ResourceMethod> methods() {");
+      writer.println("    return java.util.Arrays.asList(");
+      writer.println(entries.stream().map(entry -> "        " + entry).collect(joining(",\n")));
+      writer.println("    );");
+      writer.println("  }");
+      writer.println("}");
+    }
+  }
+
+  private static <T> void collect(T[] annotations, Function<T, String> value, String httpMethod, String prefix, List<String> httpMethods, List<String> uriPatterns) {
+    for (T annotation : annotations) {
+      httpMethods.add(httpMethod);
+      uriPatterns.add(prefix + value.apply(annotation));
+    }
+  }
+
+  // Returns null when the generated code could not call the method, so the resource is left to reflection
+  private String options(TypeElement resource, ExecutableElement method, PackageElement pkg) {
+    if (!isAccessible(method.getReturnType(), pkg) || method.getParameters().stream().anyMatch(parameter -> !isAccessible(parameter.asType(), pkg))) {
+      return null;
+    }
+
+    StringBuilder options = new StringBuilder();
+
+    Produces produces = method.getAnnotation(Produces.class);
+    if (produces != null) {
+      options.append(".withContentType(").append(literal(produces.value())).append(")");
+    }
+
+    MaxBodySize maxBodySize = method.getAnnotation(MaxBodySize.class);
+    if (maxBodySize != null) {
+      options.append(".withMaxBodySize(").append(maxBodySize.value()).append("L)");
+    }
+
+    Version version = method.getAnnotation(Version.class);
+    if (version != null) {
+      ExecutableElement versionMethod = findVersionMethod(method, version.value());
+      if (versionMethod == null) {
+        processingEnv.getMessager().printMessage(ERROR, "Unable to find version method " + version.value(), method);
+        return null;
+      }
+
+      Set<Modifier> modifiers = versionMethod.getModifiers();
+      boolean samePackage = processingEnv.getElementUtils().getPackageOf(versionMethod).equals(pkg);
+      if (modifiers.contains(PRIVATE) || (!modifiers.contains(PUBLIC) && !samePackage)) {
+        return null;
+      }
+
+      options.append(".withVersion(").append(invoker(resource, versionMethod)).append(", ").append(!versionMethod.getParameters().isEmpty()).append(")");
+    }
+
+    return options.toString();
+  }
+
+  private ExecutableElement findVersionMethod(ExecutableElement method, String name) {
+    Types types = processingEnv.getTypeUtils();
+
+    for (TypeMirror type = method.getEnclosingElement().asType(); type.getKind() == TypeKind.DECLARED; type = ((TypeElement) types.asElement(type)).getSuperclass()) {
+      for (ExecutableElement candidate : ElementFilter.methodsIn(types.asElement(type).getEnclosedElements())) {
+        if (candidate.getSimpleName().contentEquals(name) && (candidate.getParameters().isEmpty() || sameParameters(candidate, method))) {
+          return candidate;
+        }
+      }
+    }
+
+    return null;
+  }
+
+  private boolean sameParameters(ExecutableElement left, ExecutableElement right) {
+    if (left.getParameters().size() != right.getParameters().size()) {
+      return false;
+    }
+
+    Types types = processingEnv.getTypeUtils();
+    for (int i = 0; i < left.getParameters().size(); i++) {
+      if (!types.isSameType(types.erasure(left.getParameters().get(i).asType()), types.erasure(right.getParameters().get(i).asType()))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private String invoker(TypeElement resource, ExecutableElement method) {
+    List<? extends VariableElement> parameters = method.getParameters();
+
+    StringBuilder arguments = new StringBuilder();
+    for (int i = 0; i < parameters.size(); i++) {
+      arguments.append((i == 0) ? "" : ", ").append("(").append(erasure(parameters.get(i).asType())).append(") arguments[").append(i).append("]");
+    }
+
+    String target = method.getModifiers().contains(STATIC) ? erasure(method.getEnclosingElement().asType()) : "((" + erasure(resource.asType()) + ") target)";
+    String call = target + "." + method.getSimpleName() + "(" + arguments + ")";
+
+    if (method.getReturnType().getKind() == TypeKind.VOID) {
+      return "(target, arguments) -> { " + call + "; return null; }";
+    }
+    return "(target, arguments) -> " + call;
+  }
+
+  private String erasure(TypeMirror type) {
+    return processingEnv.getTypeUtils().erasure(type).toString();
+  }
+
+  private boolean isAccessible(TypeMirror type, PackageElement pkg) {
+    switch (type.getKind()) {
+      case ARRAY:
+        return isAccessible(((ArrayType) type).getComponentType(), pkg);
+      case DECLARED:
+        return isAccessible((TypeElement) ((DeclaredType) type).asElement(), pkg);
+      case TYPEVAR:
+        return isAccessible(processingEnv.getTypeUtils().erasure(type), pkg);
+      default:
+        return true;
+    }
+  }
+
+  private boolean isAccessible(TypeElement type, PackageElement pkg) {
+    for (Element element = type; element instanceof TypeElement; element = element.getEnclosingElement()) {
+      TypeElement current = (TypeElement) element;
+      Set<Modifier> modifiers = current.getModifiers();
+
+      if ((current.getNestingKind() == NestingKind.LOCAL) || (current.getNestingKind() == NestingKind.ANONYMOUS) || modifiers.contains(PRIVATE)) {
+        return false;
+      }
+      if (!modifiers.contains(PUBLIC) && !processingEnv.getElementUtils().getPackageOf(current).equals(pkg)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static String literal(String value) {
+    StringBuilder literal = new StringBuilder("\"");
+    for (char c : value.toCharArray()) {
+      switch (c) {
+        case '"':
+          literal.append("\\\"");
+          break;
+        case '\\':
+          literal.append("\\\\");
+          break;
+        case '\n':
+          literal.append("\\n");
+          break;
+        default:
+          literal.append(c);
+      }
+    }
+    return literal.append('"').toString();
+  }
+}
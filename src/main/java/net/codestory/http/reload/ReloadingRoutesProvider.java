@@ -15,11 +15,8 @@
  */
 package net.codestory.http.reload;
 
-import static java.nio.file.Files.*;
-import static net.codestory.http.io.FileVisitor.*;
-
-import java.io.*;
 import java.nio.file.*;
+import java.util.*;
 import java.util.concurrent.atomic.*;
 
 import net.codestory.http.*;
@@ -28,8 +25,6 @@ import net.codestory.http.routes.*;
 
 import org.slf4j.*;
 
-import com.sun.nio.file.*;
-
 class ReloadingRoutesProvider implements RoutesProvider {
   private final static Logger LOG = LoggerFactory.getLogger(ReloadingRoutesProvider.class);
 
@@ -65,40 +60,6 @@ class ReloadingRoutesProvider implements RoutesProvider {
   }
 
   private void startClassChangeWatcher(Path path) {
-    new Thread(() -> watchChanges(path)).start();
-  }
-
-  private void watchChanges(Path path) {
-    WatchService watcher = createWatcher(path);
-    reloadOnChange(watcher);
-  }
-
-  private WatchService createWatcher(Path path) {
-    try {
-      WatchService watcher = path.getFileSystem().newWatchService();
-
-      walkFileTree(path, onDirectory(dir -> {
-        dir.register(watcher, new WatchEvent.Kind[]{
-            StandardWatchEventKinds.ENTRY_CREATE,
-            StandardWatchEventKinds.ENTRY_MODIFY,
-            StandardWatchEventKinds.ENTRY_DELETE},
-            SensitivityWatchEventModifier.HIGH);
-      }));
-
-      return watcher;
-    } catch (IOException e) {
-      throw new IllegalStateException("Unable to watch folder " + path);
-    }
-  }
-
-  private void reloadOnChange(WatchService watcher) {
-    while (true) {
-      try {
-        WatchKey take = watcher.take();
-        take.pollEvents().forEach(ev -> dirty.set(true)); // consume all events of this shitty API;
-        take.reset();
-      } catch (InterruptedException e) {
-      }
-    }
+    new FolderWatcher(Collections.singletonList(path), (root, changed) -> dirty.set(true)).start();
   }
 }
@@ -15,33 +15,53 @@
  */
 package net.codestory.http.routes;
 
-import java.lang.reflect.*;
 import java.util.function.*;
 
-import net.codestory.http.annotations.*;
+import net.codestory.http.convert.*;
 import net.codestory.http.internal.*;
 import net.codestory.http.payload.*;
 
 abstract class AbstractReflectionRoute implements AnyRoute {
+  private static final Object[] NO_ARGUMENTS = new Object[0];
+
   private final Supplier<Object> resource;
-  private final Method method;
+  private final ResourceMethod method;
 
-  protected AbstractReflectionRoute(Supplier<Object> resource, Method method) {
+  protected AbstractReflectionRoute(Supplier<Object> resource, ResourceMethod method) {
     this.resource = resource;
     this.method = method;
+
+    TypeConvert.prepare(method.returnType());
+    for (Class<?> parameterType : method.parameterTypes()) {
+      TypeConvert.prepare(parameterType);
+    }
   }
 
   @Override
   public Object body(Context context, String[] pathParameters) {
     try {
-      Object[] arguments = findArguments(context, pathParameters, method.getParameterTypes());
+      if (method.maxBodySize() >= 0) {
+        context.setMaxBodySize(method.maxBodySize());
+      }
+
+      Object[] arguments = findArguments(context, pathParameters, method.parameterTypes());
 
       Object target = resource.get();
-      Object response = invoke(method, target, arguments);
+
+      Object version = null;
+      if (method.version() != null) {
+        version = method.version().invoke(target, method.versionWithArguments() ? arguments : NO_ARGUMENTS);
+
+        Payload notModified = Versions.notModified(context, version);
+        if (notModified != null) {
+          return notModified;
+        }
+      }
+
+      Object response = method.invoker().invoke(target, arguments);
       Object payload = emptyIfNull(response);
-      String contentType = findContentType(method);
 
-      return new Payload(contentType, payload);
+      return Versions.tag(new Payload(method.contentType(), payload), version);
     } catch (RuntimeException e) {
       throw e;
     } catch (Throwable e) {
@@ -51,22 +71,7 @@ abstract class AbstractReflectionRoute implements AnyRoute {
 
   protected abstract Object[] findArguments(Context context, String[] parameters, Class<?>[] parameterTypes);
 
-  private static Object invoke(Method method, Object target, Object[] arguments) throws Throwable {
-    try {
-      method.setAccessible(true);
-      return method.invoke(target, arguments);
-    } catch (InvocationTargetException e) {
-      throw e.getCause();
-    }
-  }
-
   private static Object emptyIfNull(Object payload) {
     return (payload == null) ? "" : payload;
   }
-
-  private static String findContentType(Method method) {
-    Produces annotation = method.getAnnotation(Produces.class);
-    return (annotation == null) ? null : annotation.value();
-  }
 }
-
@@ -0,0 +1,60 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.routes;
+
+import static net.codestory.http.constants.Headers.*;
+import static net.codestory.http.constants.Methods.*;
+
+import net.codestory.http.bundles.*;
+import net.codestory.http.internal.*;
+import net.codestory.http.payload.*;
+
+class BundleRoute implements Route {
+  // Dev mode builds a bundle on each lookup, so it's looked up once, only for a declared bundle name
+  @Override
+  public Payload apply(String uri, Context context) {
+    if (!matchUri(uri)) {
+      return Payload.notFound();
+    }
+
+    if (!matchMethod(context.method())) {
+      return Payload.methodNotAllowed();
+    }
+
+    Bundle bundle = Bundles.INSTANCE.find(uri);
+    if (bundle == null) {
+      return Payload.notFound();
+    }
+
+    return new Payload(bundle.contentType(), bundle.body())
+        .withHeader(CACHE_CONTROL, "public, max-age=31536000, immutable");
+  }
+
+  @Override
+  public boolean matchUri(String uri) {
+    return Bundles.INSTANCE.isDeclared(uri);
+  }
+
+  @Override
+  public boolean matchMethod(String method) {
+    return GET.equalsIgnoreCase(method) || HEAD.equalsIgnoreCase(method);
+  }
+
+  @Override
+  public Object body(Context context) {
+    return apply(context.uri(), context);
+  }
+}
@@ -0,0 +1,29 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.routes;
+
+import java.util.*;
+
+// Implemented by the <Resource>_Routes classes that RoutesProcessor generates at compile time
+public interface GeneratedRoutes {
+  List<ResourceMethod> methods();
+
+  static String className(Class<?> type) {
+    String name = type.getName();
+    int lastDot = name.lastIndexOf('.');
+    return name.substring(0, lastDot + 1) + name.substring(lastDot + 1).replace('$', '_') + "_Routes";
+  }
+}
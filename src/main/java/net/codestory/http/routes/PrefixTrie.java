@@ -0,0 +1,74 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.routes;
+
+import java.util.*;
+
+// Values registered under a uri prefix, looked up in registration order with a single walk of the uri
+class PrefixTrie<T> {
+  private final Node<T> root = new Node<>();
+  private int count;
+
+  void put(String prefix, T value) {
+    Node<T> node = root;
+    for (int i = 0; i < prefix.length(); i++) {
+      node = node.children.computeIfAbsent(prefix.charAt(i), c -> new Node<>());
+    }
+    node.entries.add(new Entry<>(count++, value));
+  }
+
+  List<T> matching(String uri) {
+    List<Entry<T>> entries = new ArrayList<>(root.entries);
+
+    boolean sorted = true;
+    Node<T> node = root;
+    for (int i = 0; i < uri.length(); i++) {
+      node = node.children.get(uri.charAt(i));
+      if (node == null) {
+        break;
+      }
+      if (!node.entries.isEmpty()) {
+        sorted &= entries.isEmpty();
+        entries.addAll(node.entries);
+      }
+    }
+
+    if (!sorted) {
+      entries.sort((left, right) -> Integer.compare(left.index, right.index));
+    }
+
+    List<T> values = new ArrayList<>(entries.size());
+    for (Entry<T> entry : entries) {
+      values.add(entry.value);
+    }
+    return values;
+  }
+
+  private static class Node<T> {
+    private final Map<Character, Node<T>> children = new HashMap<>();
+    private final List<Entry<T>> entries = new ArrayList<>();
+  }
+
+  private static class Entry<T> {
+    private final int index;
+    private final T value;
+
+    private Entry(int index, T value) {
+      this.index = index;
+      this.value = value;
+    }
+  }
+}
@@ -15,14 +15,13 @@
  */
 package net.codestory.http.routes;
 
-import java.lang.reflect.*;
 import java.util.function.*;
 
 import net.codestory.http.convert.*;
 import net.codestory.http.internal.*;
 
 class ReflectionRoute extends AbstractReflectionRoute {
-  ReflectionRoute(Supplier<Object> resource, Method method) {
+  ReflectionRoute(Supplier<Object> resource, ResourceMethod method) {
     super(resource, method);
   }
 
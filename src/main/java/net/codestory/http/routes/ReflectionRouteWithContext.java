@@ -15,14 +15,13 @@
  */
 package net.codestory.http.routes;
 
-import java.lang.reflect.*;
 import java.util.function.*;
 
 import net.codestory.http.convert.*;
 import net.codestory.http.internal.*;
 
 class ReflectionRouteWithContext extends AbstractReflectionRoute {
-  ReflectionRouteWithContext(Supplier<Object> resource, Method method) {
+  ReflectionRouteWithContext(Supplier<Object> resource, ResourceMethod method) {
     super(resource, method);
   }
 
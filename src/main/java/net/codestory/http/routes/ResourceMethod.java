@@ -0,0 +1,144 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.routes;
+
+import java.lang.reflect.*;
+import java.util.*;
+
+import net.codestory.http.annotations.*;
+
+public class ResourceMethod {
+  private final String httpMethod;
+  private final String uriPattern;
+  private final Class<?>[] parameterTypes;
+  private final Class<?> returnType;
+  private final Invoker invoker;
+  private String contentType;
+  private long maxBodySize = -1;
+  private Invoker version;
+  private boolean versionWithArguments;
+
+  public ResourceMethod(String httpMethod, String uriPattern, Class<?>[] parameterTypes, Class<?> returnType, Invoker invoker) {
+    this.httpMethod = httpMethod;
+    this.uriPattern = uriPattern;
+    this.parameterTypes = parameterTypes;
+    this.returnType = returnType;
+    this.invoker = invoker;
+  }
+
+  public ResourceMethod withContentType(String contentType) {
+    this.contentType = contentType;
+    return this;
+  }
+
+  public ResourceMethod withMaxBodySize(long maxBodySize) {
+    this.maxBodySize = maxBodySize;
+    return this;
+  }
+
+  public ResourceMethod withVersion(Invoker version, boolean withArguments) {
+    this.version = version;
+    this.versionWithArguments = withArguments;
+    return this;
+  }
+
+  String httpMethod() {
+    return httpMethod;
+  }
+
+  String uriPattern() {
+    return uriPattern;
+  }
+
+  Class<?>[] parameterTypes() {
+    return parameterTypes;
+  }
+
+  Class<?> returnType() {
+    return returnType;
+  }
+
+  Invoker invoker() {
+    return invoker;
+  }
+
+  String contentType() {
+    return contentType;
+  }
+
+  long maxBodySize() {
+    return maxBodySize;
+  }
+
+  Invoker version() {
+    return version;
+  }
+
+  boolean versionWithArguments() {
+    return versionWithArguments;
+  }
+
+  static ResourceMethod of(String httpMethod, String uriPattern, Method method) {
+    ResourceMethod resourceMethod = new ResourceMethod(httpMethod, uriPattern, method.getParameterTypes(), method.getReturnType(), invoker(method));
+
+    Produces produces = method.getAnnotation(Produces.class);
+    if (produces != null) {
+      resourceMethod.withContentType(produces.value());
+    }
+
+    MaxBodySize maxBodySize = method.getAnnotation(MaxBodySize.class);
+    if (maxBodySize != null) {
+      resourceMethod.withMaxBodySize(maxBodySize.value());
+    }
+
+    Method versionMethod = findVersionMethod(method);
+    if (versionMethod != null) {
+      resourceMethod.withVersion(invoker(versionMethod), versionMethod.getParameterCount() > 0);
+    }
+
+    return resourceMethod;
+  }
+
+  private static Invoker invoker(Method method) {
+    method.setAccessible(true);
+
+    return (target, arguments) -> {
+      try {
+        return method.invoke(target, arguments);
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+    };
+  }
+
+  private static Method findVersionMethod(Method method) {
+    Version annotation = method.getAnnotation(Version.class);
+    if (annotation == null) {
+      return null;
+    }
+
+    for (Class<?> type = method.getDeclaringClass(); type != null; type = type.getSuperclass()) {
+      for (Method candidate : type.getDeclaredMethods()) {
+        if (candidate.getName().equals(annotation.value())
+            && ((candidate.getParameterCount() == 0) || Arrays.equals(candidate.getParameterTypes(), method.getParameterTypes()))) {
+          return candidate;
+        }
+      }
+    }
+
+    throw new IllegalArgumentException("Unable to find version method " + annotation.value() + " for " + method);
+  }
+}
@@ -19,6 +19,7 @@ import static java.util.Arrays.*;
 import static net.codestory.http.constants.Methods.*;
 import static net.codestory.http.internal.UriParser.*;
 import static net.codestory.http.misc.ForEach.forEach;
+import static net.codestory.http.misc.MemoizingSupplier.*;
 
 import java.io.*;
 import java.lang.reflect.*;
@@ -35,12 +36,12 @@ import net.codestory.http.payload.*;
 
 public class RouteCollection implements Routes {
   private final List<Route> routes;
-  private final List<Supplier<Filter>> filters;
+  private final PrefixTrie<Supplier<Filter>> filters;
   private IocAdapter iocAdapter = new Singletons();
 
   public RouteCollection() {
     this.routes = new LinkedList<>();
-    this.filters = new LinkedList<>();
+    this.filters = new PrefixTrie<>();
   }
 
   public RouteCollection setIocAdapter(IocAdapter iocAdapter) {
@@ -62,25 +63,35 @@ public class RouteCollection implements Routes {
 
   @Override
   public RouteCollection filter(Class<? extends Filter> filterClass) {
-    filters.add(() -> iocAdapter.get(filterClass));
-    return this;
+    return filter("", filterClass);
   }
 
   @Override
   public RouteCollection filter(Filter filter) {
-    filters.add(() -> filter);
+    return filter("", filter);
+  }
+
+  @Override
+  public RouteCollection filter(String uriPrefix, Class<? extends Filter> filterClass) {
+    filters.put(uriPrefix, supplier(filterClass));
+    return this;
+  }
+
+  @Override
+  public RouteCollection filter(String uriPrefix, Filter filter) {
+    filters.put(uriPrefix, () -> filter);
     return this;
   }
 
   @Override
   public RouteCollection add(Class<?> resourceType) {
-    addResource("", resourceType, () -> iocAdapter.get(resourceType));
+    addResource("", resourceType, supplier(resourceType));
     return this;
   }
 
   @Override
   public RouteCollection add(String urlPrefix, Class<?> resourceType) {
-    addResource(urlPrefix, resourceType, () -> iocAdapter.get(resourceType));
+    addResource(urlPrefix, resourceType, supplier(resourceType));
     return this;
   }
 
@@ -96,12 +107,26 @@ public class RouteCollection implements Routes {
     return this;
   }
 
+  // Resolved through the IocAdapter on first use, to let setIocAdapter() be called after the registration
+  private <T> Supplier<T> supplier(Class<? extends T> type) {
+    Supplier<? extends Supplier<? extends T>> supplier = memoize(() -> iocAdapter.supplier(type));
+    return () -> supplier.get().get();
+  }
+
   private void addResource(String urlPrefix, Class<?> type, Supplier<Object> resource) {
     // Hack to support Mockito Spies
     if (type.getName().contains("EnhancerByMockito")) {
       type = type.getSuperclass();
     }
 
+    List<ResourceMethod> generated = generatedMethods(type);
+    if (generated != null) {
+      for (ResourceMethod method : generated) {
+        addResource(method, resource, urlPrefix + method.uriPattern());
+      }
+      return;
+    }
+
     Prefix prefixAnnotation = type.getAnnotation(Prefix.class);
     String classPrefix = (prefixAnnotation != null) ? prefixAnnotation.value() : "";
 
@@ -117,21 +142,38 @@ public class RouteCollection implements Routes {
   }
 
   private void addResource(String httpMethod, Method method, Supplier<Object> resource, String uriPattern) {
-    int methodParamsCount = method.getParameterCount();
+    addResource(ResourceMethod.of(httpMethod, uriPattern, method), resource, uriPattern);
+  }
+
+  private void addResource(ResourceMethod method, Supplier<Object> resource, String uriPattern) {
+    int methodParamsCount = method.parameterTypes().length;
     int uriParamsCount = paramsCount(uriPattern);
 
     if (methodParamsCount == uriParamsCount) {
-      add(httpMethod, checkParametersCount(uriPattern, methodParamsCount), new ReflectionRoute(resource, method));
+      add(method.httpMethod(), checkParametersCount(uriPattern, methodParamsCount), new ReflectionRoute(resource, method));
     } else if (methodParamsCount == (uriParamsCount + 1)) {
-      add(httpMethod, checkParametersCount(uriPattern, methodParamsCount - 1), new ReflectionRouteWithContext(resource, method));
+      add(method.httpMethod(), checkParametersCount(uriPattern, methodParamsCount - 1), new ReflectionRouteWithContext(resource, method));
     } else {
       throw new IllegalArgumentException("Expected " + uriParamsCount + " or " + (uriParamsCount + 1) + " parameters in " + uriPattern);
     }
   }
 
+  // Route tables generated by RoutesProcessor avoid scanning and invoking the resource by reflection
+  private static List<ResourceMethod> generatedMethods(Class<?> type) {
+    try {
+      Class<?> generated = Class.forName(GeneratedRoutes.className(type), true, type.getClassLoader());
+      return ((GeneratedRoutes) generated.getDeclaredConstructor().newInstance()).methods();
+    } catch (ClassNotFoundException e) {
+      return null;
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Unable to load generated routes for " + type, e);
+    }
+  }
+
   @Override
   public RouteCollection get(String uriPattern, Object payload) {
-    get(uriPattern, () -> payload);
+    Object constant = Payload.prepare(payload);
+    get(uriPattern, () -> constant);
     return this;
   }
 
@@ -171,9 +213,46 @@ public class RouteCollection implements Routes {
     return this;
   }
 
+  @Override
+  public RouteCollection get(String uriPattern, VersionSupplier version, NoParamRoute route) {
+    add(GET, checkParametersCount(uriPattern, 0), route, version);
+    return this;
+  }
+
+  @Override
+  public RouteCollection get(String uriPattern, VersionSupplier version, NoParamRouteWithContext route) {
+    add(GET, checkParametersCount(uriPattern, 0), route, version);
+    return this;
+  }
+
+  @Override
+  public RouteCollection get(String uriPattern, VersionSupplier version, OneParamRoute route) {
+    add(GET, checkParametersCount(uriPattern, 1), route, version);
+    return this;
+  }
+
+  @Override
+  public RouteCollection get(String uriPattern, VersionSupplier version, TwoParamsRoute route) {
+    add(GET, checkParametersCount(uriPattern, 2), route, version);
+    return this;
+  }
+
+  @Override
+  public RouteCollection get(String uriPattern, VersionSupplier version, ThreeParamsRoute route) {
+    add(GET, checkParametersCount(uriPattern, 3), route, version);
+    return this;
+  }
+
+  @Override
+  public RouteCollection get(String uriPattern, VersionSupplier version, FourParamsRoute route) {
+    add(GET, checkParametersCount(uriPattern, 4), route, version);
+    return this;
+  }
+
   @Override
   public RouteCollection head(String uriPattern, Object payload) {
-    head(uriPattern, () -> payload);
+    Object constant = Payload.prepare(payload);
+    head(uriPattern, () -> constant);
     return this;
   }
 
@@ -323,7 +402,8 @@ public class RouteCollection implements Routes {
 
   @Override
   public RouteCollection catchAll(Object payload) {
-    catchAll(() -> payload);
+    Object constant = Payload.prepare(payload);
+    catchAll(() -> constant);
     return this;
   }
 
@@ -345,7 +425,11 @@ public class RouteCollection implements Routes {
   }
 
   private RouteCollection add(String method, String uriPattern, AnyRoute route) {
-    routes.add(new RouteWrapper(method, uriPattern, route));
+    return add(method, uriPattern, route, null);
+  }
+
+  private RouteCollection add(String method, String uriPattern, AnyRoute route, VersionSupplier version) {
+    routes.add(new RouteWrapper(method, uriPattern, route, version));
     return this;
   }
 
@@ -354,6 +438,7 @@ public class RouteCollection implements Routes {
     boolean prodMode = Env.INSTANCE.prodMode();
 
     routes.add(new WebJarsRoute(prodMode));
+    routes.add(new BundleRoute());
     routes.add(new StaticRoute(prodMode));
     routes.add(new SourceMapRoute());
   }
@@ -381,7 +466,7 @@ public class RouteCollection implements Routes {
       return bestMatch;
     };
 
-    for (Supplier<Filter> filter : filters) {
+    for (Supplier<Filter> filter : filters.matching(uri)) {
       PayloadSupplier nextFilter = payloadSupplier;
       payloadSupplier = () -> filter.get().apply(uri, context, nextFilter);
     }
@@ -18,16 +18,23 @@ package net.codestory.http.routes;
 import static net.codestory.http.constants.Methods.*;
 
 import net.codestory.http.internal.*;
+import net.codestory.http.payload.*;
 
 class RouteWrapper implements Route {
   private final String method;
   private final UriParser uriParser;
   private final AnyRoute route;
+  private final VersionSupplier version;
 
   RouteWrapper(String method, String uriPattern, AnyRoute route) {
+    this(method, uriPattern, route, null);
+  }
+
+  RouteWrapper(String method, String uriPattern, AnyRoute route, VersionSupplier version) {
     this.method = method;
     this.uriParser = new UriParser(uriPattern);
     this.route = route;
+    this.version = version;
   }
 
   @Override
@@ -42,7 +49,16 @@ class RouteWrapper implements Route {
 
   @Override
   public Object body(Context context) {
-    String[] parameters = uriParser.params(context.uri(), context.request().getQuery());
-    return route.body(context, parameters);
+    String[] parameters = uriParser.params(context.uri(), context.keyValues());
+    if (version == null) {
+      return route.body(context, parameters);
+    }
+
+    Object current = version.version(context, parameters);
+    Payload notModified = Versions.notModified(context, current);
+    if (notModified != null) {
+      return notModified;
+    }
+    return Versions.tag(route.body(context, parameters), current);
   }
 }
@@ -32,6 +32,10 @@ public interface Routes extends Serializable {
 
   Routes filter(Filter filter);
 
+  Routes filter(String uriPrefix, Class<? extends Filter> filterClass);
+
+  Routes filter(String uriPrefix, Filter filter);
+
   Routes add(Class<?> resource);
 
   Routes add(String urlPrefix, Class<?> resource);
@@ -54,6 +58,18 @@ public interface Routes extends Serializable {
 
   Routes get(String uriPattern, FourParamsRoute route);
 
+  Routes get(String uriPattern, VersionSupplier version, NoParamRoute route);
+
+  Routes get(String uriPattern, VersionSupplier version, NoParamRouteWithContext route);
+
+  Routes get(String uriPattern, VersionSupplier version, OneParamRoute route);
+
+  Routes get(String uriPattern, VersionSupplier version, TwoParamsRoute route);
+
+  Routes get(String uriPattern, VersionSupplier version, ThreeParamsRoute route);
+
+  Routes get(String uriPattern, VersionSupplier version, FourParamsRoute route);
+
   Routes head(String uriPattern, Object payload);
 
   Routes head(String uriPattern, NoParamRoute route);
@@ -15,6 +15,8 @@
  */
 package net.codestory.http.routes;
 
+import net.codestory.http.filters.*;
+
 public class RoutesWithPattern {
   private final Routes routes;
   private String currentUriPattern;
@@ -59,6 +61,36 @@ public class RoutesWithPattern {
     return this;
   }
 
+  public RoutesWithPattern get(VersionSupplier version, NoParamRoute route) {
+    routes.get(currentUriPattern, version, route);
+    return this;
+  }
+
+  public RoutesWithPattern get(VersionSupplier version, NoParamRouteWithContext route) {
+    routes.get(currentUriPattern, version, route);
+    return this;
+  }
+
+  public RoutesWithPattern get(VersionSupplier version, OneParamRoute route) {
+    routes.get(currentUriPattern, version, route);
+    return this;
+  }
+
+  public RoutesWithPattern get(VersionSupplier version, TwoParamsRoute route) {
+    routes.get(currentUriPattern, version, route);
+    return this;
+  }
+
+  public RoutesWithPattern get(VersionSupplier version, ThreeParamsRoute route) {
+    routes.get(currentUriPattern, version, route);
+    return this;
+  }
+
+  public RoutesWithPattern get(VersionSupplier version, FourParamsRoute route) {
+    routes.get(currentUriPattern, version, route);
+    return this;
+  }
+
   public RoutesWithPattern head(Object payload) {
     routes.head(currentUriPattern, payload);
     return this;
@@ -184,6 +216,16 @@ public class RoutesWithPattern {
     return this;
   }
 
+  public RoutesWithPattern filter(Class<? extends Filter> filterClass) {
+    routes.filter(currentUriPattern, filterClass);
+    return this;
+  }
+
+  public RoutesWithPattern filter(Filter filter) {
+    routes.filter(currentUriPattern, filter);
+    return this;
+  }
+
   public RoutesWithPattern with(String uriPattern) {
     this.currentUriPattern = uriPattern;
     return this;
@@ -13,21 +13,13 @@
  * See the License for the specific language governing permissions and
  * limitations under the License
  */
-package net.codestory.http.compilers;
+package net.codestory.http.routes;
 
 import java.io.*;
-import java.nio.file.*;
 
-import com.github.sommeri.less4j.*;
-import com.github.sommeri.less4j.core.*;
+import net.codestory.http.internal.*;
 
-class LessSourceMapCompiler implements Compiler {
-  @Override
-  public String compile(Path path, String source) throws IOException {
-    try {
-      return new ThreadUnsafeLessCompiler().compile(new PathSource(path, source)).getSourceMap();
-    } catch (Less4jException e) {
-      throw new IOException("Unable to compile less", e);
-    }
-  }
-}
\ No newline at end of file
+@FunctionalInterface
+public interface VersionSupplier extends Serializable {
+  Object version(Context context, String[] pathParameters);
+}
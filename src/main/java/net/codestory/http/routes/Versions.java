@@ -0,0 +1,108 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.routes;
+
+import static net.codestory.http.constants.Headers.*;
+import static net.codestory.http.constants.Methods.*;
+import static net.codestory.http.io.Strings.*;
+
+import java.time.*;
+import java.util.*;
+
+import net.codestory.http.internal.*;
+import net.codestory.http.misc.*;
+import net.codestory.http.payload.*;
+
+// A Date or an Instant is a Last-Modified date, anything else is an ETag
+class Versions {
+  private Versions() {
+    // Static class
+  }
+
+  static Payload notModified(Context context, Object version) {
+    if ((version == null) || !(GET.equals(context.method()) || HEAD.equals(context.method()))) {
+      return null;
+    }
+
+    String ifNoneMatch = context.getHeader(IF_NONE_MATCH);
+    if (ifNoneMatch != null) {
+      return matches(ifNoneMatch, etag(version)) ? tag(Payload.notModified(), version) : null;
+    }
+
+    String ifModifiedSince = context.getHeader(IF_MODIFIED_SINCE);
+    long lastModified = lastModified(version);
+    if ((ifModifiedSince == null) || (lastModified < 0)) {
+      return null;
+    }
+
+    try {
+      return ((lastModified / 1000) <= (Dates.parse_rfc_1123(ifModifiedSince) / 1000)) ? tag(Payload.notModified(), version) : null;
+    } catch (RuntimeException e) {
+      return null;
+    }
+  }
+
+  static Object tag(Object body, Object version) {
+    if (version == null) {
+      return body;
+    }
+
+    Payload payload = new Payload(body);
+    return payload.isSuccess() ? tag(payload, version) : payload;
+  }
+
+  private static Payload tag(Payload payload, Object version) {
+    long lastModified = lastModified(version);
+    if (lastModified >= 0) {
+      return payload.withHeader(LAST_MODIFIED, Dates.to_rfc_1123(lastModified));
+    }
+    return payload.withHeader(ETAG, etag(version));
+  }
+
+  private static boolean matches(String ifNoneMatch, String etag) {
+    if (etag == null) {
+      return false;
+    }
+    if ("*".equals(ifNoneMatch.trim())) {
+      return true;
+    }
+
+    for (String candidate : ifNoneMatch.split(",")) {
+      String value = candidate.trim();
+      if (value.startsWith("W/")) {
+        value = value.substring(2);
+      }
+      if (etag.equals(stripQuotes(value))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String etag(Object version) {
+    return (lastModified(version) >= 0) ? null : version.toString();
+  }
+
+  private static long lastModified(Object version) {
+    if (version instanceof Date) {
+      return ((Date) version).getTime();
+    }
+    if (version instanceof Instant) {
+      return ((Instant) version).toEpochMilli();
+    }
+    return -1;
+  }
+}
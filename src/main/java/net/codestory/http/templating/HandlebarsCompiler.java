@@ -40,6 +40,7 @@ public class HandlebarsCompiler {
     hb.endDelimiter("]]");
     hb.registerHelpers(new EachReverseHelperSource());
     hb.registerHelpers(new EachValueHelperSource());
+    hb.registerHelpers(new BundleHelperSource());
     hb.registerHelpers(StringHelpers.class);
     hb.with(new ConcurrentMapTemplateCache());
     hb.with(new AbstractTemplateLoader() {
@@ -16,13 +16,11 @@
 package net.codestory.http.templating;
 
 import static java.nio.charset.StandardCharsets.*;
-import static net.codestory.http.misc.MemoizingSupplier.*;
 
 import java.io.*;
 import java.nio.file.*;
 import java.util.*;
-import java.util.function.*;
-import java.util.stream.*;
+import java.util.concurrent.*;
 
 import net.codestory.http.convert.*;
 import net.codestory.http.io.*;
@@ -31,101 +29,84 @@ import net.codestory.http.misc.*;
 import com.github.jknack.handlebars.*;
 
 public class Site {
-  private static Site INSTANCE = new Site();
+  private static final Site INSTANCE = new Site();
+  private static final String CONFIG_FILE = "_config.yml";
 
-  private Supplier<Map<String, Object>> yaml;
-  private Supplier<Map<String, Object>> data;
-  private Supplier<List<Map<String, Object>>> pages;
-  private Supplier<Map<String, List<Map<String, Object>>>> tags;
-  private Supplier<Map<String, List<Map<String, Object>>>> categories;
+  private final Set<String> changedPaths;
+
+  private boolean watcherIsStarted;
+  private Map<String, Object> yaml;
+  private SiteIndex index;
 
   private Site() {
-    yaml = memoize(() -> loadYamlConfig("_config.yml"));
-
-    data = memoize(() -> Resources.list()
-        .stream()
-        .filter(path -> path.startsWith("_data/"))
-        .collect(Collectors.toMap(path -> nameWithoutExtension(path), path -> readYaml(path))));
-
-    pages = memoize(() -> Resources.list()
-        .stream()
-        .filter(path -> !path.startsWith("_"))
-        .map(path -> Site.pathToMap(path))
-        .collect(Collectors.<Map<String, Object>>toList())
-    );
-
-    tags = memoize(() -> {
-      Map<String, List<Map<String, Object>>> tags = new TreeMap<>();
-      for (Map<String, Object> page : getPages()) {
-        for (String tag : tags(page)) {
-          tags.computeIfAbsent(tag, key -> new ArrayList<Map<String, Object>>()).add(page);
-        }
-      }
-      return tags;
-    });
-
-    categories = memoize(() -> {
-      Map<String, List<Map<String, Object>>> sorted = getPages()
-          .stream()
-          .collect(Collectors.groupingBy(page -> Site.category(page), TreeMap::new, Collectors.toList()));
-      return sorted;
-    });
+    this.changedPaths = ConcurrentHashMap.newKeySet();
   }
 
   public static Site get() {
-    return Env.INSTANCE.prodMode() ? INSTANCE : new Site();
-  }
-
-  private Map<String, Object> configYaml() {
-    return yaml.get();
+    return INSTANCE;
   }
 
-  public Object get(String key) {
-    return yaml.get().get(key);
+  private synchronized Map<String, Object> configYaml() {
+    refresh();
+    if (yaml == null) {
+      yaml = loadYamlConfig(CONFIG_FILE);
+    }
+    return yaml;
   }
 
-  public <T> T getAs(String key, Class<T> type) {
-    return TypeConvert.convertValue(get(key), type);
+  private SiteIndex index() {
+    refresh();
+    if (index == null) {
+      index = SiteIndex.load();
+    }
+    return index;
   }
 
-  public Map<String, Object> getData() {
-    return data.get();
-  }
+  private void refresh() {
+    if (!watcherIsStarted) {
+      if (!Env.INSTANCE.prodMode()) {
+        new FolderWatcher(Resources.folders(), (root, changed) -> changedPaths.add(Resources.relativePath(root, changed))).start();
+      }
+      watcherIsStarted = true;
+    }
 
-  public List<Map<String, Object>> getPages() {
-    return pages.get();
+    for (Iterator<String> paths = changedPaths.iterator(); paths.hasNext(); ) {
+      String path = paths.next();
+      paths.remove();
+
+      if (path.isEmpty()) {
+        yaml = null;
+        index = null;
+      } else if (path.equals(CONFIG_FILE)) {
+        yaml = null;
+      } else if (index != null) {
+        index.update(path);
+      }
+    }
   }
 
-  public Map<String, List<Map<String, Object>>> getTags() {
-    return tags.get();
+  public Object get(String key) {
+    return configYaml().get(key);
   }
 
-  public Map<String, List<Map<String, Object>>> getCategories() {
-    return categories.get();
+  public <T> T getAs(String key, Class<T> type) {
+    return TypeConvert.convertValue(get(key), type);
   }
 
-  private static Map<String, Object> pathToMap(String path) {
-    try {
-      return YamlFrontMatter.parse(Paths.get(path)).getVariables();
-    } catch (IOException e) {
-      throw new IllegalStateException("Unable to read file: " + path, e);
-    }
+  public synchronized Map<String, Object> getData() {
+    return index().data();
   }
 
-  private static Object readYaml(String path) {
-    try {
-      return YamlParser.INSTANCE.parse(Resources.read(Paths.get(path), UTF_8));
-    } catch (IOException e) {
-      throw new IllegalStateException("Unable to read file: " + path, e);
-    }
+  public synchronized List<Map<String, Object>> getPages() {
+    return index().pages();
   }
 
-  private static String category(Map<String, Object> page) {
-    return page.getOrDefault("category", "").toString().trim();
+  public synchronized Map<String, List<Map<String, Object>>> getTags() {
+    return index().tags();
   }
 
-  private static String[] tags(Map<String, Object> page) {
-    return page.getOrDefault("tags", "").toString().trim().split("\\s*,\\s*");
+  public synchronized Map<String, List<Map<String, Object>>> getCategories() {
+    return index().categories();
   }
 
   @SuppressWarnings("unchecked")
@@ -142,10 +123,6 @@ public class Site {
     }
   }
 
-  private static String nameWithoutExtension(String path) {
-    return Strings.substringBeforeLast(Paths.get(path).getFileName().toString(), ".");
-  }
-
   static enum SiteValueResolver implements ValueResolver {
     INSTANCE;
 
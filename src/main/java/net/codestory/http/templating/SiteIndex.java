@@ -0,0 +1,231 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.templating;
+
+import static java.nio.charset.StandardCharsets.*;
+import static java.util.Collections.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import net.codestory.http.io.*;
+import net.codestory.http.misc.*;
+
+class SiteIndex {
+  private static final Comparator<Map<String, Object>> BY_PATH = Comparator.comparing(page -> page.get("path").toString());
+
+  private final Map<String, Object> dataByPath;
+  private final Map<String, Map<String, Object>> pagesByPath;
+  private final Map<String, List<Map<String, Object>>> tags;
+  private final Map<String, List<Map<String, Object>>> categories;
+
+  private Map<String, Object> dataSnapshot;
+  private List<Map<String, Object>> pagesSnapshot;
+  private Map<String, List<Map<String, Object>>> tagsSnapshot;
+  private Map<String, List<Map<String, Object>>> categoriesSnapshot;
+
+  private SiteIndex() {
+    this.dataByPath = new TreeMap<>();
+    this.pagesByPath = new TreeMap<>();
+    this.tags = new TreeMap<>();
+    this.categories = new TreeMap<>();
+  }
+
+  static SiteIndex load() {
+    List<String> paths = new ArrayList<>(Resources.list());
+
+    ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    try {
+      return pool.invoke(new LoadTask(paths, 0, paths.size()));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  // Files inside a directory that still exists are reported one by one, so only deletions concern children
+  void update(String path) {
+    Path changed = Paths.get(path);
+    if (Resources.exists(changed)) {
+      remove(path);
+      add(path);
+    } else if (!Resources.isDirectory(changed)) {
+      remove(path);
+      for (String child : new ArrayList<>(pagesByPath.keySet())) {
+        if (child.startsWith(path + "/")) {
+          remove(child);
+        }
+      }
+      dataByPath.keySet().removeIf(child -> child.startsWith(path + "/"));
+    }
+
+    dataSnapshot = null;
+    pagesSnapshot = null;
+    tagsSnapshot = null;
+    categoriesSnapshot = null;
+  }
+
+  Map<String, Object> data() {
+    if (dataSnapshot == null) {
+      Map<String, Object> data = new HashMap<>();
+      dataByPath.forEach((path, value) -> data.put(nameWithoutExtension(path), value));
+      dataSnapshot = unmodifiableMap(data);
+    }
+    return dataSnapshot;
+  }
+
+  List<Map<String, Object>> pages() {
+    if (pagesSnapshot == null) {
+      pagesSnapshot = unmodifiableList(new ArrayList<>(pagesByPath.values()));
+    }
+    return pagesSnapshot;
+  }
+
+  Map<String, List<Map<String, Object>>> tags() {
+    if (tagsSnapshot == null) {
+      tagsSnapshot = snapshot(tags);
+    }
+    return tagsSnapshot;
+  }
+
+  Map<String, List<Map<String, Object>>> categories() {
+    if (categoriesSnapshot == null) {
+      categoriesSnapshot = snapshot(categories);
+    }
+    return categoriesSnapshot;
+  }
+
+  private void add(String path) {
+    if (path.startsWith("_data/")) {
+      dataByPath.put(path, readYaml(path));
+    } else if (!path.startsWith("_")) {
+      Map<String, Object> page = pathToMap(path);
+      pagesByPath.put(path, page);
+
+      for (String tag : tags(page)) {
+        insert(tags, tag, page);
+      }
+      insert(categories, category(page), page);
+    }
+  }
+
+  // Both indexes cover contiguous, sorted ranges of paths so lists can simply be concatenated
+  private SiteIndex append(SiteIndex other) {
+    dataByPath.putAll(other.dataByPath);
+    pagesByPath.putAll(other.pagesByPath);
+    other.tags.forEach((tag, pages) -> tags.computeIfAbsent(tag, k -> new ArrayList<>()).addAll(pages));
+    other.categories.forEach((category, pages) -> categories.computeIfAbsent(category, k -> new ArrayList<>()).addAll(pages));
+    return this;
+  }
+
+  private void remove(String path) {
+    dataByPath.remove(path);
+
+    Map<String, Object> page = pagesByPath.remove(path);
+    if (page != null) {
+      for (String tag : tags(page)) {
+        delete(tags, tag, page);
+      }
+      delete(categories, category(page), page);
+    }
+  }
+
+  private static void insert(Map<String, List<Map<String, Object>>> pagesByKey, String key, Map<String, Object> page) {
+    List<Map<String, Object>> pages = pagesByKey.computeIfAbsent(key, k -> new ArrayList<>());
+
+    int index = Collections.binarySearch(pages, page, BY_PATH);
+    pages.add((index < 0) ? -index - 1 : index, page);
+  }
+
+  private static void delete(Map<String, List<Map<String, Object>>> pagesByKey, String key, Map<String, Object> page) {
+    List<Map<String, Object>> pages = pagesByKey.get(key);
+    if (pages == null) {
+      return;
+    }
+
+    pages.removeIf(other -> other == page);
+    if (pages.isEmpty()) {
+      pagesByKey.remove(key);
+    }
+  }
+
+  private static Map<String, List<Map<String, Object>>> snapshot(Map<String, List<Map<String, Object>>> pagesByKey) {
+    Map<String, List<Map<String, Object>>> snapshot = new TreeMap<>();
+    pagesByKey.forEach((key, pages) -> snapshot.put(key, unmodifiableList(new ArrayList<>(pages))));
+    return unmodifiableMap(snapshot);
+  }
+
+  private static Map<String, Object> pathToMap(String path) {
+    try {
+      return YamlFrontMatter.parse(Paths.get(path)).getVariables();
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to read file: " + path, e);
+    }
+  }
+
+  private static Object readYaml(String path) {
+    try {
+      return YamlParser.INSTANCE.parse(Resources.read(Paths.get(path), UTF_8));
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to read file: " + path, e);
+    }
+  }
+
+  private static String category(Map<String, Object> page) {
+    return page.getOrDefault("category", "").toString().trim();
+  }
+
+  private static String[] tags(Map<String, Object> page) {
+    return page.getOrDefault("tags", "").toString().trim().split("\\s*,\\s*");
+  }
+
+  private static String nameWithoutExtension(String path) {
+    return Strings.substringBeforeLast(Paths.get(path).getFileName().toString(), ".");
+  }
+
+  private static class LoadTask extends RecursiveTask<SiteIndex> {
+    private static final int THRESHOLD = 8;
+
+    private final List<String> paths;
+    private final int from;
+    private final int to;
+
+    private LoadTask(List<String> paths, int from, int to) {
+      this.paths = paths;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected SiteIndex compute() {
+      if ((to - from) <= THRESHOLD) {
+        SiteIndex index = new SiteIndex();
+        for (String path : paths.subList(from, to)) {
+          index.add(path);
+        }
+        return index;
+      }
+
+      int middle = (from + to) >>> 1;
+      LoadTask left = new LoadTask(paths, from, middle);
+      left.fork();
+      SiteIndex right = new LoadTask(paths, middle, to).compute();
+
+      return left.join().append(right);
+    }
+  }
+}
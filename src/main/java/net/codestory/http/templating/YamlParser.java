@@ -22,6 +22,9 @@ import org.yaml.snakeyaml.*;
 public enum YamlParser {
   INSTANCE;
 
+  // Yaml is not thread-safe
+  private final ThreadLocal<Yaml> yaml = ThreadLocal.withInitial(Yaml::new);
+
   @SuppressWarnings("unchecked")
   public Map<String, Object> parseMap(String content) {
     Map<String, Object> variables = (Map<String, Object>) parse(content);
@@ -31,11 +34,6 @@ public enum YamlParser {
 
   @SuppressWarnings("unchecked")
   public Object parse(String content) {
-    return createYaml().load(content);
-  }
-
-  // Not thread-safe
-  private Yaml createYaml() {
-    return new Yaml();
+    return yaml.get().load(content);
   }
 }
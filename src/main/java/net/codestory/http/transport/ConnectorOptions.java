@@ -0,0 +1,134 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.transport;
+
+import java.io.*;
+import java.net.*;
+import java.nio.channels.*;
+import java.time.*;
+
+public class ConnectorOptions {
+  private String host;
+  private int backlog = 1024;
+  private boolean tcpNoDelay = true;
+  private int receiveBufferSize;
+  private int sendBufferSize;
+  private Duration keepAliveTimeout = Duration.ofSeconds(30);
+  private int maxRequestsPerConnection;
+  private boolean limitsConnections;
+
+  public ConnectorOptions withHost(String host) {
+    this.host = host;
+    return this;
+  }
+
+  public ConnectorOptions withBacklog(int backlog) {
+    this.backlog = backlog;
+    return this;
+  }
+
+  public ConnectorOptions withTcpNoDelay(boolean tcpNoDelay) {
+    this.tcpNoDelay = tcpNoDelay;
+    return this;
+  }
+
+  // 0 keeps the system default
+  public ConnectorOptions withReceiveBufferSize(int receiveBufferSize) {
+    this.receiveBufferSize = receiveBufferSize;
+    return this;
+  }
+
+  // 0 keeps the system default
+  public ConnectorOptions withSendBufferSize(int sendBufferSize) {
+    this.sendBufferSize = sendBufferSize;
+    return this;
+  }
+
+  // Duration.ZERO keeps idle connections open
+  public ConnectorOptions withKeepAliveTimeout(Duration keepAliveTimeout) {
+    this.keepAliveTimeout = keepAliveTimeout;
+    this.limitsConnections = true;
+    return this;
+  }
+
+  // 0 means no limit
+  public ConnectorOptions withMaxRequestsPerConnection(int maxRequestsPerConnection) {
+    this.maxRequestsPerConnection = maxRequestsPerConnection;
+    this.limitsConnections = true;
+    return this;
+  }
+
+  public InetSocketAddress address(int port) {
+    return (host == null) ? new InetSocketAddress(port) : new InetSocketAddress(host, port);
+  }
+
+  // True when the keep-alive timeout or the requests per connection were changed from their default value
+  boolean limitsConnections() {
+    return limitsConnections;
+  }
+
+  ServerSocketChannel bind(InetSocketAddress address) throws IOException {
+    ServerSocketChannel serverChannel = ServerSocketChannel.open();
+    try {
+      serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+      if (receiveBufferSize > 0) {
+        // Set on the listening socket so that accepted sockets get it before the TCP handshake
+        serverChannel.setOption(StandardSocketOptions.SO_RCVBUF, receiveBufferSize);
+      }
+      serverChannel.bind(address, backlog);
+      return serverChannel;
+    } catch (IOException e) {
+      serverChannel.close();
+      throw e;
+    }
+  }
+
+  void configure(SocketChannel channel) throws IOException {
+    channel.configureBlocking(false);
+    channel.setOption(StandardSocketOptions.TCP_NODELAY, tcpNoDelay);
+    if (sendBufferSize > 0) {
+      channel.setOption(StandardSocketOptions.SO_SNDBUF, sendBufferSize);
+    }
+  }
+
+  public String host() {
+    return host;
+  }
+
+  public int backlog() {
+    return backlog;
+  }
+
+  public boolean tcpNoDelay() {
+    return tcpNoDelay;
+  }
+
+  public int receiveBufferSize() {
+    return receiveBufferSize;
+  }
+
+  public int sendBufferSize() {
+    return sendBufferSize;
+  }
+
+  public Duration keepAliveTimeout() {
+    return keepAliveTimeout;
+  }
+
+  public int maxRequestsPerConnection() {
+    return maxRequestsPerConnection;
+  }
+}
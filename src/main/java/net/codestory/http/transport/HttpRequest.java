@@ -0,0 +1,54 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.transport;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+
+import org.simpleframework.http.*;
+
+public interface HttpRequest {
+  String uri();
+
+  String method();
+
+  String header(String name);
+
+  List<String> headers(String name);
+
+  String parameter(String name);
+
+  List<String> parameters(String name);
+
+  Map<String, String> parameters();
+
+  // Simple's Cookie is the cookie type of the public Payload and Context api, so every transport needs the Simple jar
+  List<Cookie> cookies();
+
+  default Cookie cookie(String name) {
+    for (Cookie cookie : cookies()) {
+      if (cookie.getName().equals(name)) {
+        return cookie;
+      }
+    }
+    return null;
+  }
+
+  InetSocketAddress clientAddress();
+
+  InputStream inputStream() throws IOException;
+}
@@ -0,0 +1,42 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.transport;
+
+import java.io.*;
+import java.nio.channels.*;
+
+import org.simpleframework.http.*;
+
+public interface HttpResponse {
+  void setStatus(int code);
+
+  int status();
+
+  void setHeader(String name, String value);
+
+  String header(String name);
+
+  // Simple's Cookie is the cookie type of the public Payload and Context api, so every transport needs the Simple jar
+  void setCookie(Cookie cookie);
+
+  void setContentLength(long length);
+
+  OutputStream outputStream() throws IOException;
+
+  WritableByteChannel channel() throws IOException;
+
+  void close() throws IOException;
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.transport;
+
+import java.io.*;
+
+// Request body handed to the route while the selector thread is still receiving it.
+// At most CAPACITY bytes are buffered, reading from the socket is paused until the route consumes them.
+class NioBody extends InputStream {
+  static final int CAPACITY = 64 * 1024;
+
+  private final NioConnection connection;
+  private final byte[] buffer;
+  private long missing;
+  private int start;
+  private int count;
+  private boolean paused;
+  private boolean aborted;
+
+  NioBody(NioConnection connection, long contentLength) {
+    this.connection = connection;
+    this.buffer = new byte[(int) Math.min(contentLength, CAPACITY)];
+    this.missing = contentLength;
+  }
+
+  // Called by the selector thread, returns the number of bytes taken from data
+  synchronized int offer(byte[] data, int offset, int length) {
+    int accepted = (int) Math.min(Math.min(length, missing), buffer.length - count);
+    int end = (start + count) % Math.max(buffer.length, 1);
+    int first = Math.min(accepted, buffer.length - end);
+    System.arraycopy(data, offset, buffer, end, first);
+    System.arraycopy(data, offset + first, buffer, 0, accepted - first);
+    count += accepted;
+    missing -= accepted;
+    paused = (missing > 0) && (count == buffer.length);
+    notifyAll();
+    return accepted;
+  }
+
+  synchronized boolean isReceived() {
+    return missing == 0;
+  }
+
+  synchronized boolean isPaused() {
+    return paused;
+  }
+
+  synchronized void abort() {
+    aborted = true;
+    notifyAll();
+  }
+
+  @Override
+  public int read() throws IOException {
+    byte[] single = new byte[1];
+    return (read(single, 0, 1) < 0) ? -1 : (single[0] & 0xFF);
+  }
+
+  @Override
+  public int read(byte[] bytes, int offset, int length) throws IOException {
+    if (length == 0) {
+      return 0;
+    }
+
+    boolean resume;
+    int read;
+    synchronized (this) {
+      while ((count == 0) && (missing > 0)) {
+        if (aborted) {
+          throw new IOException("Connection closed");
+        }
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException();
+        }
+      }
+      if (count == 0) {
+        return -1;
+      }
+
+      read = Math.min(length, count);
+      int first = Math.min(read, buffer.length - start);
+      System.arraycopy(buffer, start, bytes, offset, first);
+      System.arraycopy(buffer, 0, bytes, offset + first, read - first);
+      start = (start + read) % buffer.length;
+      count -= read;
+
+      resume = paused;
+      paused = false;
+    }
+
+    if (resume) {
+      connection.resume();
+    }
+    return read;
+  }
+
+  @Override
+  public synchronized int available() {
+    return count;
+  }
+}
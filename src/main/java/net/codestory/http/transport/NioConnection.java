@@ -0,0 +1,276 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.transport;
+
+import static java.nio.charset.StandardCharsets.*;
+
+import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import net.codestory.http.misc.*;
+
+import org.slf4j.*;
+
+class NioConnection {
+  private static final Logger LOG = LoggerFactory.getLogger(NioConnection.class);
+
+  private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+  private static final long WRITE_TIMEOUT = TimeUnit.SECONDS.toMillis(30);
+  private static final byte[] CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(US_ASCII);
+
+  private final NioTransport transport;
+  private final SocketChannel channel;
+  private final SelectionKey key;
+  private final InetSocketAddress clientAddress;
+  private final ConnectorOptions options;
+  private ByteBuffer input = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+  private NioBody body;
+  private boolean handling;
+  private Selector writeSelector;
+  private boolean waitingForRequest = true;
+  private long lastActivity = System.currentTimeMillis();
+  private int requests;
+
+  NioConnection(NioTransport transport, SocketChannel channel, Selector selector, ConnectorOptions options) throws IOException {
+    this.transport = transport;
+    this.channel = channel;
+    this.options = options;
+    this.clientAddress = (InetSocketAddress) channel.getRemoteAddress();
+    this.key = channel.register(selector, SelectionKey.OP_READ, this);
+  }
+
+  // Called by the selector thread
+  void onReadable() {
+    lastActivity = System.currentTimeMillis();
+
+    try {
+      int read = 0;
+      do {
+        if (!input.hasRemaining()) {
+          if (input.capacity() > NioRequest.MAX_HEADER_SIZE) {
+            break;
+          }
+          input = grow(input);
+        }
+        read = channel.read(input);
+      } while (read > 0);
+
+      if (read < 0) {
+        close();
+        return;
+      }
+
+      dispatch();
+    } catch (IOException | RuntimeException e) {
+      LOG.debug("Closing connection", e);
+      close();
+    }
+  }
+
+  // Called by the selector thread, when new bytes are received or a previous request has completed
+  void dispatch() throws IOException {
+    if (handling) {
+      feedBody();
+      return;
+    }
+
+    byte[] data = input.array();
+    int length = input.position();
+
+    int headerLength = NioRequest.headerLength(data, length);
+    if (headerLength < 0) {
+      if (length > NioRequest.MAX_HEADER_SIZE) {
+        reject("431 Request Header Fields Too Large");
+      } else {
+        waitForRequest();
+      }
+      return;
+    }
+
+    NioRequest request;
+    try {
+      request = NioRequest.parseHead(data, headerLength, clientAddress);
+    } catch (IllegalArgumentException e) {
+      reject("400 Bad Request");
+      return;
+    }
+
+    if (request.contentLength() < 0) {
+      reject("411 Length Required");
+      return;
+    }
+    if (request.contentLength() > Env.INSTANCE.maxBodySize()) {
+      reject("413 Request Entity Too Large");
+      return;
+    }
+
+    consume(headerLength);
+    body = new NioBody(this, request.contentLength());
+    request.setBody(body);
+
+    requests++;
+    handling = true;
+    waitingForRequest = false;
+    feedBody();
+
+    if (!body.isReceived() && "100-continue".equalsIgnoreCase(request.header("Expect"))) {
+      channel.write(ByteBuffer.wrap(CONTINUE));
+    }
+
+    transport.handle(request, new NioResponse(this, request, !isLastRequest()));
+  }
+
+  // Moves the received bytes to the body of the current request, keeps reading only while it has room for them
+  private void feedBody() {
+    if (!body.isReceived()) {
+      consume(body.offer(input.array(), 0, input.position()));
+    }
+    key.interestOps((body.isReceived() || body.isPaused()) ? 0 : SelectionKey.OP_READ);
+  }
+
+  private void consume(int count) {
+    byte[] data = input.array();
+    int length = input.position();
+    System.arraycopy(data, count, data, 0, length - count);
+    input.position(length - count);
+  }
+
+  // Called by the thread that reads the body, once it has made room in a full body buffer
+  void resume() {
+    transport.execute(() -> {
+      try {
+        if (handling) {
+          feedBody();
+        }
+      } catch (RuntimeException e) {
+        LOG.debug("Closing connection", e);
+        close();
+      }
+    });
+  }
+
+  private void waitForRequest() {
+    if (!waitingForRequest) {
+      waitingForRequest = true;
+      lastActivity = System.currentTimeMillis();
+    }
+    key.interestOps(SelectionKey.OP_READ);
+  }
+
+  private boolean isLastRequest() {
+    return (options.maxRequestsPerConnection() > 0) && (requests >= options.maxRequestsPerConnection());
+  }
+
+  // Called by the selector thread
+  void closeIfIdle(long now) {
+    long timeout = options.keepAliveTimeout().toMillis();
+    if (waitingForRequest && (timeout > 0) && ((now - lastActivity) > timeout)) {
+      close();
+    }
+  }
+
+  // Called by the thread that completes the response
+  void completed(boolean keepAlive) {
+    transport.execute(() -> {
+      handling = false;
+
+      // The next request can only be found once the whole body of this one was received
+      if (!keepAlive || !body.isReceived()) {
+        close();
+        return;
+      }
+
+      try {
+        dispatch();
+      } catch (IOException | RuntimeException e) {
+        LOG.debug("Closing connection", e);
+        close();
+      }
+    });
+  }
+
+  // Called by the thread that writes the response, waits when the socket buffer is full
+  void write(ByteBuffer[] buffers) throws IOException {
+    while (hasRemaining(buffers)) {
+      if (channel.write(buffers) == 0) {
+        awaitWritable();
+      }
+    }
+  }
+
+  private void awaitWritable() throws IOException {
+    synchronized (this) {
+      if (writeSelector == null) {
+        writeSelector = Selector.open();
+        channel.register(writeSelector, SelectionKey.OP_WRITE);
+      }
+    }
+
+    if (writeSelector.select(WRITE_TIMEOUT) == 0) {
+      throw new IOException("Write timeout");
+    }
+    writeSelector.selectedKeys().clear();
+  }
+
+  private void reject(String status) throws IOException {
+    channel.write(ByteBuffer.wrap(("HTTP/1.1 " + status + "\r\nContent-Length: 0\r\nConnection: close\r\n\r\n").getBytes(US_ASCII)));
+    close();
+  }
+
+  void close() {
+    NioBody current = body;
+    if (current != null) {
+      current.abort();
+    }
+
+    key.cancel();
+    try {
+      channel.close();
+    } catch (IOException e) {
+      // Ignore
+    }
+
+    synchronized (this) {
+      if (writeSelector != null) {
+        try {
+          writeSelector.close();
+        } catch (IOException e) {
+          // Ignore
+        }
+      }
+    }
+  }
+
+  private static boolean hasRemaining(ByteBuffer[] buffers) {
+    for (ByteBuffer buffer : buffers) {
+      if (buffer.hasRemaining()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static ByteBuffer grow(ByteBuffer buffer) {
+    ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+    buffer.flip();
+    larger.put(buffer);
+    return larger;
+  }
+}
@@ -0,0 +1,281 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.transport;
+
+import static java.nio.charset.StandardCharsets.*;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.*;
+import java.util.*;
+
+import net.codestory.http.io.*;
+
+import org.simpleframework.http.*;
+
+class NioRequest implements HttpRequest {
+  static final int MAX_HEADER_SIZE = 64 * 1024;
+
+  private final String method;
+  private final String uri;
+  private final boolean http11;
+  private final Map<String, List<String>> headers;
+  private final InetSocketAddress clientAddress;
+  private final long contentLength;
+  private NioBody body;
+  private byte[] form;
+  private Map<String, List<String>> parameters;
+  private List<Cookie> cookies;
+
+  private NioRequest(String method, String uri, boolean http11, Map<String, List<String>> headers, InetSocketAddress clientAddress) {
+    this.method = method;
+    this.uri = uri;
+    this.http11 = http11;
+    this.headers = headers;
+    this.clientAddress = clientAddress;
+    this.contentLength = contentLength(headers);
+  }
+
+  // Returns the size of the header block, including the empty line, or -1 if it isn't complete yet
+  static int headerLength(byte[] data, int length) {
+    for (int i = 3; i < length; i++) {
+      if ((data[i] == '\n') && (data[i - 1] == '\r') && (data[i - 2] == '\n') && (data[i - 3] == '\r')) {
+        return i + 1;
+      }
+    }
+    return -1;
+  }
+
+  static NioRequest parseHead(byte[] data, int headerLength, InetSocketAddress clientAddress) {
+    String[] lines = new String(data, 0, headerLength - 4, ISO_8859_1).split("\r\n");
+
+    String[] requestLine = lines[0].split(" ");
+    if ((requestLine.length != 3) || !requestLine[2].startsWith("HTTP/1.")) {
+      throw new IllegalArgumentException("Invalid request line: " + lines[0]);
+    }
+
+    return new NioRequest(requestLine[0], requestLine[1], requestLine[2].equals("HTTP/1.1"), parseHeaders(lines), clientAddress);
+  }
+
+  void setBody(NioBody body) {
+    this.body = body;
+  }
+
+  boolean isBodyReceived() {
+    return body.isReceived();
+  }
+
+  long contentLength() {
+    return contentLength;
+  }
+
+  static Map<String, List<String>> parseHeaders(String[] lines) {
+    Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    for (int i = 1; i < lines.length; i++) {
+      int colon = lines[i].indexOf(':');
+      if (colon <= 0) {
+        throw new IllegalArgumentException("Invalid header: " + lines[i]);
+      }
+
+      String name = lines[i].substring(0, colon).trim();
+      String value = lines[i].substring(colon + 1).trim();
+      headers.computeIfAbsent(name, key -> new ArrayList<>()).add(value);
+    }
+
+    return headers;
+  }
+
+  // Returns -1 for unsupported bodies
+  private static long contentLength(Map<String, List<String>> headers) {
+    if (headers.containsKey("Transfer-Encoding")) {
+      return -1;
+    }
+
+    List<String> values = headers.get("Content-Length");
+    if (values == null) {
+      return 0;
+    }
+
+    try {
+      return Long.parseLong(values.get(0));
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  boolean isKeepAlive() {
+    String connection = header("Connection");
+    if (http11) {
+      return !"close".equalsIgnoreCase(connection);
+    }
+    return "keep-alive".equalsIgnoreCase(connection);
+  }
+
+  boolean isHttp11() {
+    return http11;
+  }
+
+  @Override
+  public String uri() {
+    int questionMark = uri.indexOf('?');
+    return decode((questionMark < 0) ? uri : uri.substring(0, questionMark), false);
+  }
+
+  @Override
+  public String method() {
+    return method;
+  }
+
+  @Override
+  public String header(String name) {
+    List<String> values = headers.get(name);
+    return (values == null) ? null : values.get(0);
+  }
+
+  @Override
+  public List<String> headers(String name) {
+    List<String> values = headers.get(name);
+    return (values == null) ? Collections.emptyList() : values;
+  }
+
+  @Override
+  public String parameter(String name) {
+    List<String> values = parameterValues().get(name);
+    return (values == null) ? null : values.get(0);
+  }
+
+  @Override
+  public List<String> parameters(String name) {
+    List<String> values = parameterValues().get(name);
+    return (values == null) ? Collections.emptyList() : values;
+  }
+
+  @Override
+  public Map<String, String> parameters() {
+    Map<String, String> firstValues = new LinkedHashMap<>();
+    parameterValues().forEach((name, values) -> firstValues.put(name, values.get(0)));
+    return firstValues;
+  }
+
+  private synchronized Map<String, List<String>> parameterValues() {
+    if (parameters == null) {
+      parameters = new LinkedHashMap<>();
+
+      int questionMark = uri.indexOf('?');
+      if (questionMark >= 0) {
+        parseParameters(uri.substring(questionMark + 1), parameters);
+      }
+
+      String contentType = header("Content-Type");
+      if ((contentType != null) && contentType.startsWith("application/x-www-form-urlencoded")) {
+        try {
+          form = InputStreams.readBytes(body);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        parseParameters(new String(form, charset()), parameters);
+      }
+    }
+    return parameters;
+  }
+
+  private static void parseParameters(String query, Map<String, List<String>> parameters) {
+    for (String pair : query.split("&")) {
+      if (pair.isEmpty()) {
+        continue;
+      }
+
+      int equals = pair.indexOf('=');
+      String name = decode((equals < 0) ? pair : pair.substring(0, equals), true);
+      String value = (equals < 0) ? "" : decode(pair.substring(equals + 1), true);
+      parameters.computeIfAbsent(name, key -> new ArrayList<>()).add(value);
+    }
+  }
+
+  @Override
+  public synchronized List<Cookie> cookies() {
+    if (cookies == null) {
+      cookies = new ArrayList<>();
+
+      for (String header : headers("Cookie")) {
+        for (String pair : header.split(";")) {
+          int equals = pair.indexOf('=');
+          if (equals > 0) {
+            cookies.add(new Cookie(pair.substring(0, equals).trim(), pair.substring(equals + 1).trim()));
+          }
+        }
+      }
+    }
+    return cookies;
+  }
+
+  @Override
+  public InetSocketAddress clientAddress() {
+    return clientAddress;
+  }
+
+  @Override
+  public synchronized InputStream inputStream() {
+    // Form content was already read to parse the parameters
+    return (form != null) ? new ByteArrayInputStream(form) : body;
+  }
+
+  private Charset charset() {
+    String contentType = header("Content-Type");
+    if (contentType != null) {
+      int index = contentType.toLowerCase().indexOf("charset=");
+      if (index >= 0) {
+        try {
+          return Charset.forName(contentType.substring(index + 8).replace("\"", "").trim());
+        } catch (IllegalArgumentException e) {
+          // Fallback to UTF-8
+        }
+      }
+    }
+    return UTF_8;
+  }
+
+  private static String decode(String value, boolean plusAsSpace) {
+    if ((value.indexOf('%') < 0) && (!plusAsSpace || (value.indexOf('+') < 0))) {
+      return value;
+    }
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(value.length());
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if ((c == '%') && (i + 2 < value.length())) {
+        int high = Character.digit(value.charAt(i + 1), 16);
+        int low = Character.digit(value.charAt(i + 2), 16);
+        if ((high >= 0) && (low >= 0)) {
+          bytes.write((high << 4) + low);
+          i += 2;
+          continue;
+        }
+      }
+
+      if ((c == '+') && plusAsSpace) {
+        bytes.write(' ');
+      } else {
+        int codePoint = value.codePointAt(i);
+        byte[] encoded = new String(Character.toChars(codePoint)).getBytes(UTF_8);
+        bytes.write(encoded, 0, encoded.length);
+        i += Character.charCount(codePoint) - 1;
+      }
+    }
+    return new String(bytes.toByteArray(), UTF_8);
+  }
+}
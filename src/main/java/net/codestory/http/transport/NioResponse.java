@@ -0,0 +1,310 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.transport;
+
+import static java.nio.charset.StandardCharsets.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+
+import net.codestory.http.misc.*;
+
+import org.simpleframework.http.*;
+
+class NioResponse implements HttpResponse {
+  private static final int BUFFER_SIZE = 8 * 1024;
+  private static final byte[] CRLF = {'\r', '\n'};
+  private static final byte[] LAST_CHUNK = {'0', '\r', '\n', '\r', '\n'};
+
+  private static final Map<Integer, String> REASONS = new HashMap<>();
+
+  static {
+    REASONS.put(100, "Continue");
+    REASONS.put(101, "Switching Protocols");
+    REASONS.put(200, "OK");
+    REASONS.put(201, "Created");
+    REASONS.put(202, "Accepted");
+    REASONS.put(203, "Non-Authoritative Information");
+    REASONS.put(204, "No Content");
+    REASONS.put(205, "Reset Content");
+    REASONS.put(206, "Partial Content");
+    REASONS.put(300, "Multiple Choices");
+    REASONS.put(301, "Moved Permanently");
+    REASONS.put(302, "Found");
+    REASONS.put(303, "See Other");
+    REASONS.put(304, "Not Modified");
+    REASONS.put(305, "Use Proxy");
+    REASONS.put(307, "Temporary Redirect");
+    REASONS.put(308, "Permanent Redirect");
+    REASONS.put(400, "Bad Request");
+    REASONS.put(401, "Unauthorized");
+    REASONS.put(402, "Payment Required");
+    REASONS.put(403, "Forbidden");
+    REASONS.put(404, "Not Found");
+    REASONS.put(405, "Method Not Allowed");
+    REASONS.put(406, "Not Acceptable");
+    REASONS.put(407, "Proxy Authentication Required");
+    REASONS.put(408, "Request Timeout");
+    REASONS.put(409, "Conflict");
+    REASONS.put(410, "Gone");
+    REASONS.put(411, "Length Required");
+    REASONS.put(412, "Precondition Failed");
+    REASONS.put(413, "Request Entity Too Large");
+    REASONS.put(414, "Request-URI Too Long");
+    REASONS.put(415, "Unsupported Media Type");
+    REASONS.put(416, "Requested Range Not Satisfiable");
+    REASONS.put(417, "Expectation Failed");
+    REASONS.put(422, "Unprocessable Entity");
+    REASONS.put(426, "Upgrade Required");
+    REASONS.put(428, "Precondition Required");
+    REASONS.put(429, "Too Many Requests");
+    REASONS.put(431, "Request Header Fields Too Large");
+    REASONS.put(500, "Internal Server Error");
+    REASONS.put(501, "Not Implemented");
+    REASONS.put(502, "Bad Gateway");
+    REASONS.put(503, "Service Unavailable");
+    REASONS.put(504, "Gateway Timeout");
+    REASONS.put(505, "HTTP Version Not Supported");
+    REASONS.put(511, "Network Authentication Required");
+  }
+
+  private final NioConnection connection;
+  private final NioRequest request;
+  private final Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+  private final List<Cookie> cookies = new ArrayList<>();
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+  private final BodyStream body = new BodyStream();
+  private int count;
+  private int status = 200;
+  private long contentLength = -1;
+  private long written;
+  private boolean keepAlive;
+  private boolean chunked;
+  private boolean committed;
+  private boolean closed;
+
+  NioResponse(NioConnection connection, NioRequest request, boolean canKeepAlive) {
+    this.connection = connection;
+    this.request = request;
+    this.keepAlive = canKeepAlive && request.isKeepAlive();
+  }
+
+  @Override
+  public synchronized void setStatus(int code) {
+    status = code;
+  }
+
+  @Override
+  public synchronized int status() {
+    return status;
+  }
+
+  @Override
+  public synchronized void setHeader(String name, String value) {
+    headers.put(name, value);
+  }
+
+  @Override
+  public synchronized String header(String name) {
+    return headers.get(name);
+  }
+
+  @Override
+  public synchronized void setCookie(Cookie cookie) {
+    cookies.add(cookie);
+  }
+
+  @Override
+  public synchronized void setContentLength(long length) {
+    contentLength = length;
+  }
+
+  @Override
+  public OutputStream outputStream() {
+    return body;
+  }
+
+  @Override
+  public WritableByteChannel channel() {
+    return Channels.newChannel(body);
+  }
+
+  @Override
+  public synchronized void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+
+    try {
+      flushBuffer(true);
+      if ((contentLength >= 0) && (written != contentLength) && hasBody()) {
+        keepAlive = false;
+      }
+    } catch (IOException e) {
+      keepAlive = false;
+    } finally {
+      connection.completed(keepAlive);
+    }
+  }
+
+  private boolean hasBody() {
+    return !"HEAD".equals(request.method()) && (status != 204) && (status != 304) && (status >= 200);
+  }
+
+  private synchronized void write(byte[] bytes, int offset, int length) throws IOException {
+    if (closed) {
+      throw new IOException("Response is closed");
+    }
+    if (!hasBody()) {
+      return;
+    }
+
+    if ((count + length) > buffer.length) {
+      flushBuffer(false);
+    }
+    if (length > buffer.length) {
+      send(ByteBuffer.wrap(bytes, offset, length), false);
+      return;
+    }
+
+    System.arraycopy(bytes, offset, buffer, count, length);
+    count += length;
+  }
+
+  private synchronized void flushBuffer(boolean last) throws IOException {
+    if (!committed || (count > 0) || (last && chunked)) {
+      send(ByteBuffer.wrap(buffer, 0, count), last);
+      count = 0;
+    }
+  }
+
+  // Headers and body go in a single gathering write whenever possible
+  private void send(ByteBuffer data, boolean last) throws IOException {
+    List<ByteBuffer> buffers = new ArrayList<>(4);
+    if (!committed) {
+      buffers.add(ByteBuffer.wrap(head(last ? data.remaining() : -1)));
+      committed = true;
+    }
+
+    int length = data.remaining();
+    written += length;
+    if (chunked && (length > 0)) {
+      buffers.add(ByteBuffer.wrap((Integer.toHexString(length) + "\r\n").getBytes(US_ASCII)));
+      buffers.add(data);
+      buffers.add(ByteBuffer.wrap(CRLF));
+    } else if (length > 0) {
+      buffers.add(data);
+    }
+    if (chunked && last) {
+      buffers.add(ByteBuffer.wrap(LAST_CHUNK));
+    }
+
+    connection.write(buffers.toArray(new ByteBuffer[buffers.size()]));
+  }
+
+  private byte[] head(long knownLength) {
+    if ("close".equalsIgnoreCase(headers.get("Connection")) || !request.isBodyReceived()) {
+      keepAlive = false;
+    }
+
+    if (hasBody() && (contentLength < 0)) {
+      if (knownLength >= 0) {
+        contentLength = knownLength;
+      } else if (request.isHttp11()) {
+        chunked = true;
+      } else {
+        keepAlive = false;
+      }
+    }
+
+    StringBuilder head = new StringBuilder(256);
+    head.append("HTTP/1.1 ").append(status).append(' ').append(reason(status)).append("\r\n");
+    head.append("Date: ").append(Dates.to_rfc_1123(System.currentTimeMillis())).append("\r\n");
+    headers.forEach((name, value) -> {
+      if (!name.equalsIgnoreCase("Connection") && !name.equalsIgnoreCase("Content-Length") && !name.equalsIgnoreCase("Transfer-Encoding")) {
+        head.append(name).append(": ").append(value).append("\r\n");
+      }
+    });
+    for (Cookie cookie : cookies) {
+      head.append("Set-Cookie: ").append(cookieHeader(cookie)).append("\r\n");
+    }
+    if (chunked) {
+      head.append("Transfer-Encoding: chunked\r\n");
+    } else if ((contentLength >= 0) && (hasBody() || "HEAD".equals(request.method()))) {
+      head.append("Content-Length: ").append(contentLength).append("\r\n");
+    }
+    if (!keepAlive) {
+      head.append("Connection: close\r\n");
+    }
+    head.append("\r\n");
+
+    return head.toString().getBytes(ISO_8859_1);
+  }
+
+  private static String cookieHeader(Cookie cookie) {
+    StringBuilder value = new StringBuilder();
+    value.append(cookie.getName()).append('=').append(cookie.getValue());
+    if (cookie.getExpiry() >= 0) {
+      value.append("; max-age=").append(cookie.getExpiry());
+    }
+    if (cookie.getPath() != null) {
+      value.append("; path=").append(cookie.getPath());
+    }
+    if (cookie.getDomain() != null) {
+      value.append("; domain=").append(cookie.getDomain());
+    }
+    if (cookie.getSecure()) {
+      value.append("; secure");
+    }
+    if (cookie.isProtected()) {
+      value.append("; httponly");
+    }
+    return value.toString();
+  }
+
+  private static String reason(int status) {
+    return REASONS.getOrDefault(status, "");
+  }
+
+  private class BodyStream extends OutputStream {
+    @Override
+    public void write(int b) throws IOException {
+      NioResponse.this.write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+      NioResponse.this.write(bytes, offset, length);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      synchronized (NioResponse.this) {
+        if (!closed && hasBody()) {
+          flushBuffer(false);
+        }
+      }
+    }
+
+    @Override
+    public void close() {
+      NioResponse.this.close();
+    }
+  }
+}
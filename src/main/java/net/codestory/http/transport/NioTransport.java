@@ -0,0 +1,212 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.transport;
+
+import java.io.*;
+import java.net.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.slf4j.*;
+
+import javax.net.ssl.*;
+
+public class NioTransport implements Transport {
+  private static final Logger LOG = LoggerFactory.getLogger(NioTransport.class);
+  private static final long IDLE_CHECK_INTERVAL = 1000;
+
+  private final int workerThreads;
+  private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+  private final List<ServerSocketChannel> serverChannels = new CopyOnWriteArrayList<>();
+  private Selector selector;
+  private ExecutorService workers;
+  private Handler handler;
+  private Thread loop;
+  private volatile boolean running;
+
+  public NioTransport() {
+    this(Runtime.getRuntime().availableProcessors() * 8);
+  }
+
+  public NioTransport(int workerThreads) {
+    this.workerThreads = workerThreads;
+  }
+
+  @Override
+  public synchronized void start(InetSocketAddress address, SSLContext sslContext, ConnectorOptions options, Handler handler) throws IOException {
+    if (sslContext != null) {
+      throw new IllegalStateException("The nio transport doesn't support SSL");
+    }
+
+    ServerSocketChannel serverChannel = options.bind(address);
+    serverChannel.configureBlocking(false);
+    serverChannels.add(serverChannel);
+
+    if (running) {
+      execute(() -> register(serverChannel, options));
+      return;
+    }
+
+    this.handler = handler;
+    this.selector = Selector.open();
+    register(serverChannel, options);
+
+    AtomicInteger workerCount = new AtomicInteger();
+    this.workers = Executors.newFixedThreadPool(workerThreads, runnable -> {
+      Thread thread = new Thread(runnable, "nio-worker-" + workerCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    running = true;
+    loop = new Thread(this::run, "nio-selector");
+    loop.start();
+  }
+
+  private void register(ServerSocketChannel serverChannel, ConnectorOptions options) {
+    try {
+      serverChannel.register(selector, SelectionKey.OP_ACCEPT, options);
+    } catch (ClosedChannelException e) {
+      LOG.warn("Unable to listen on a closed channel", e);
+    }
+  }
+
+  @Override
+  public void stopAccepting() throws IOException {
+    for (ServerSocketChannel serverChannel : serverChannels) {
+      serverChannel.close();
+    }
+    if (selector != null) {
+      selector.wakeup();
+    }
+  }
+
+  @Override
+  public void stop() throws IOException {
+    Thread selectorThread;
+    synchronized (this) {
+      if (!running) {
+        return;
+      }
+      running = false;
+      selectorThread = loop;
+    }
+
+    selector.wakeup();
+    try {
+      selectorThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    workers.shutdownNow();
+  }
+
+  void handle(NioRequest request, NioResponse response) {
+    workers.execute(() -> {
+      try {
+        handler.handle(request, response);
+      } catch (RuntimeException e) {
+        LOG.error("Unable to handle request", e);
+        response.close();
+      }
+    });
+  }
+
+  // Runs a task on the selector thread
+  void execute(Runnable task) {
+    tasks.add(task);
+    selector.wakeup();
+  }
+
+  private void run() {
+    long nextIdleCheck = System.currentTimeMillis() + IDLE_CHECK_INTERVAL;
+
+    try {
+      while (running) {
+        selector.select(IDLE_CHECK_INTERVAL);
+
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+          task.run();
+        }
+
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+
+          if (!key.isValid()) {
+            continue;
+          }
+          if (key.isAcceptable()) {
+            accept((ServerSocketChannel) key.channel(), (ConnectorOptions) key.attachment());
+          } else if (key.isReadable()) {
+            ((NioConnection) key.attachment()).onReadable();
+          }
+        }
+
+        long now = System.currentTimeMillis();
+        if (now >= nextIdleCheck) {
+          closeIdleConnections(now);
+          nextIdleCheck = now + IDLE_CHECK_INTERVAL;
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      LOG.error("Selector loop failure", e);
+    } finally {
+      closeAll();
+    }
+  }
+
+  private void accept(ServerSocketChannel serverChannel, ConnectorOptions options) {
+    try {
+      SocketChannel channel;
+      while ((channel = serverChannel.accept()) != null) {
+        options.configure(channel);
+        new NioConnection(this, channel, selector, options);
+      }
+    } catch (IOException e) {
+      LOG.warn("Unable to accept connection", e);
+    }
+  }
+
+  private void closeIdleConnections(long now) {
+    for (SelectionKey key : selector.keys()) {
+      if (key.attachment() instanceof NioConnection) {
+        ((NioConnection) key.attachment()).closeIfIdle(now);
+      }
+    }
+  }
+
+  private void closeAll() {
+    for (SelectionKey key : selector.keys()) {
+      if (key.attachment() instanceof NioConnection) {
+        ((NioConnection) key.attachment()).close();
+      }
+    }
+
+    try {
+      for (ServerSocketChannel serverChannel : serverChannels) {
+        serverChannel.close();
+      }
+      selector.close();
+    } catch (IOException e) {
+      // Ignore
+    }
+  }
+}
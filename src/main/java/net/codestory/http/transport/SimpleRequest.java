@@ -0,0 +1,85 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.transport;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+
+import org.simpleframework.http.*;
+
+class SimpleRequest implements HttpRequest {
+  private final Request request;
+
+  SimpleRequest(Request request) {
+    this.request = request;
+  }
+
+  @Override
+  public String uri() {
+    return request.getPath().getPath();
+  }
+
+  @Override
+  public String method() {
+    return request.getMethod();
+  }
+
+  @Override
+  public String header(String name) {
+    return request.getValue(name);
+  }
+
+  @Override
+  public List<String> headers(String name) {
+    return request.getValues(name);
+  }
+
+  @Override
+  public String parameter(String name) {
+    return request.getQuery().get(name);
+  }
+
+  @Override
+  public List<String> parameters(String name) {
+    return request.getQuery().getAll(name);
+  }
+
+  @Override
+  public Map<String, String> parameters() {
+    return request.getQuery();
+  }
+
+  @Override
+  public List<Cookie> cookies() {
+    return request.getCookies();
+  }
+
+  @Override
+  public Cookie cookie(String name) {
+    return request.getCookie(name);
+  }
+
+  @Override
+  public InetSocketAddress clientAddress() {
+    return request.getClientAddress();
+  }
+
+  @Override
+  public InputStream inputStream() throws IOException {
+    return request.getInputStream();
+  }
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.transport;
+
+import java.io.*;
+import java.nio.channels.*;
+
+import org.simpleframework.http.*;
+
+class SimpleResponse implements HttpResponse {
+  private final Response response;
+
+  SimpleResponse(Response response) {
+    this.response = response;
+  }
+
+  @Override
+  public void setStatus(int code) {
+    response.setStatus(Status.getStatus(code));
+  }
+
+  @Override
+  public int status() {
+    return response.getCode();
+  }
+
+  @Override
+  public void setHeader(String name, String value) {
+    response.setValue(name, value);
+  }
+
+  @Override
+  public String header(String name) {
+    return response.getValue(name);
+  }
+
+  @Override
+  public void setCookie(Cookie cookie) {
+    response.setCookie(cookie);
+  }
+
+  @Override
+  public void setContentLength(long length) {
+    response.setContentLength(length);
+  }
+
+  @Override
+  public OutputStream outputStream() throws IOException {
+    return response.getOutputStream();
+  }
+
+  @Override
+  public WritableByteChannel channel() throws IOException {
+    return response.getByteChannel();
+  }
+
+  @Override
+  public void close() throws IOException {
+    response.close();
+  }
+}
@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.transport;
+
+import java.io.*;
+import java.net.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.simpleframework.http.core.*;
+import org.simpleframework.transport.*;
+import org.simpleframework.transport.Socket;
+import org.slf4j.*;
+
+import javax.net.ssl.*;
+
+// Connections are accepted here rather than by Simple's SocketConnection: it binds with a fixed backlog,
+// doesn't set socket options and stops the server when it's closed
+public class SimpleTransport implements Transport {
+  private static final Logger LOG = LoggerFactory.getLogger(SimpleTransport.class);
+
+  private final List<ServerSocketChannel> serverChannels = new CopyOnWriteArrayList<>();
+  private Server server;
+
+  @Override
+  public synchronized void start(InetSocketAddress address, SSLContext sslContext, ConnectorOptions options, Handler handler) throws IOException {
+    if (options.limitsConnections()) {
+      throw new IllegalStateException("The simple transport can't limit keep-alive connections, use the nio transport");
+    }
+
+    if (server == null) {
+      server = new ContainerServer((request, response) -> handler.handle(new SimpleRequest(request), new SimpleResponse(response)));
+    }
+
+    ServerSocketChannel serverChannel = options.bind(address);
+    serverChannels.add(serverChannel);
+
+    Server target = server;
+    Thread acceptor = new Thread(() -> accept(serverChannel, sslContext, options, target), "simple-acceptor-" + address.getPort());
+    acceptor.setDaemon(true);
+    acceptor.start();
+  }
+
+  private static void accept(ServerSocketChannel serverChannel, SSLContext sslContext, ConnectorOptions options, Server server) {
+    while (serverChannel.isOpen()) {
+      SocketChannel channel;
+      try {
+        channel = serverChannel.accept();
+      } catch (IOException e) {
+        if (serverChannel.isOpen()) {
+          LOG.warn("Unable to accept connection", e);
+        }
+        continue;
+      }
+
+      try {
+        options.configure(channel);
+        server.process(new AcceptedSocket(channel, engine(sslContext)));
+      } catch (IOException e) {
+        LOG.warn("Unable to process connection", e);
+        try {
+          channel.close();
+        } catch (IOException ignore) {
+          // Ignore
+        }
+      }
+    }
+  }
+
+  private static SSLEngine engine(SSLContext sslContext) {
+    if (sslContext == null) {
+      return null;
+    }
+
+    SSLEngine engine = sslContext.createSSLEngine();
+    engine.setUseClientMode(false);
+    return engine;
+  }
+
+  @Override
+  public void stopAccepting() throws IOException {
+    for (ServerSocketChannel serverChannel : serverChannels) {
+      serverChannel.close();
+    }
+  }
+
+  @Override
+  public synchronized void stop() throws IOException {
+    stopAccepting();
+    if (server != null) {
+      server.stop();
+    }
+  }
+
+  private static class AcceptedSocket implements Socket {
+    private final SocketChannel channel;
+    private final SSLEngine engine;
+    private final Map<Object, Object> attributes;
+
+    private AcceptedSocket(SocketChannel channel, SSLEngine engine) {
+      this.channel = channel;
+      this.engine = engine;
+      this.attributes = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public SocketChannel getChannel() {
+      return channel;
+    }
+
+    @Override
+    public SSLEngine getEngine() {
+      return engine;
+    }
+
+    @Override
+    public Map<Object, Object> getAttributes() {
+      return attributes;
+    }
+  }
+}
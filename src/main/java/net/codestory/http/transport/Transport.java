@@ -0,0 +1,36 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.transport;
+
+import java.io.*;
+import java.net.*;
+
+import javax.net.ssl.*;
+
+public interface Transport {
+  // Can be called several times to listen on more than one address
+  void start(InetSocketAddress address, SSLContext sslContext, ConnectorOptions options, Handler handler) throws IOException;
+
+  // Stop accepting new connections but let the current requests complete
+  void stopAccepting() throws IOException;
+
+  void stop() throws IOException;
+
+  @FunctionalInterface
+  public static interface Handler {
+    void handle(HttpRequest request, HttpResponse response);
+  }
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+import net.codestory.http.annotations.*;
+import net.codestory.http.misc.*;
+import net.codestory.http.testhelpers.*;
+
+import org.junit.*;
+
+public class ConditionalTest extends AbstractWebServerTest {
+  @Test
+  public void etag_version() {
+    AtomicInteger calls = new AtomicInteger();
+    server.configure(routes -> routes.get("/page/:id", (context, params) -> "v" + params[0], (context, id) -> "Page " + id + calls.incrementAndGet()));
+
+    get("/page/42").produces("Page 421").producesHeader("ETag", "v42");
+    getWithHeader("/page/42", "If-None-Match", "\"v42\"").produces(304).producesHeader("ETag", "v42");
+    getWithHeader("/page/42", "If-None-Match", "\"v41\", W/\"v42\"").produces(304);
+    getWithHeader("/page/43", "If-None-Match", "\"v42\"").produces("Page 432");
+
+    assertThat(calls.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void last_modified_version() {
+    AtomicInteger calls = new AtomicInteger();
+    server.configure(routes -> routes.get("/", (context, params) -> new Date(1000000000000L), () -> "Hello" + calls.incrementAndGet()));
+
+    get("/").produces("Hello1").producesHeader("Last-Modified", Dates.to_rfc_1123(1000000000000L));
+    getWithHeader("/", "If-Modified-Since", Dates.to_rfc_1123(1000000000000L)).produces(304);
+    getWithHeader("/", "If-Modified-Since", Dates.to_rfc_1123(999999990000L)).produces("Hello2");
+
+    assertThat(calls.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void resource_version() {
+    Resource resource = new Resource();
+    server.configure(routes -> routes.add(resource));
+
+    get("/doc/1").produces("Doc 1");
+    getWithHeader("/doc/1", "If-None-Match", "\"1-7\"").produces(304);
+    getWithHeader("/doc/2", "If-None-Match", "\"1-7\"").produces("Doc 2");
+
+    assertThat(resource.calls.get()).isEqualTo(2);
+  }
+
+  public static class Resource {
+    final AtomicInteger calls = new AtomicInteger();
+
+    @Get("/doc/:id")
+    @Version("revision")
+    public String doc(String id) {
+      calls.incrementAndGet();
+      return "Doc " + id;
+    }
+
+    String revision(String id) {
+      return id + "-7";
+    }
+  }
+}
@@ -49,6 +49,20 @@ public class FilterTest extends AbstractWebServerTest {
     get("/").produces("FILTERED");
   }
 
+  @Test
+  public void prefix_filters() {
+    server.configure(routes -> routes.
+        get("/", "PUBLIC").
+        get("/admin/users", () -> "USERS").
+        get("/admin/logs", "LOGS").
+        filter("/admin", (uri, context, nextFilter) -> new Payload("text/html", "ADMIN " + nextFilter.get().rawContent())).
+        filter("/admin/logs", CatchAll.class));
+
+    get("/").produces("PUBLIC");
+    get("/admin/users").produces("ADMIN USERS");
+    get("/admin/logs").produces("FILTERED");
+  }
+
   @Test
   public void etag() {
     server.configure(routes -> routes.get("/", "Hello World"));
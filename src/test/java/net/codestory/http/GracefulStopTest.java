@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http;
+
+import static java.nio.charset.StandardCharsets.*;
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.*;
+import java.net.*;
+import java.time.*;
+import java.util.concurrent.*;
+
+import net.codestory.http.io.*;
+import net.codestory.http.payload.*;
+
+import org.junit.*;
+
+public class GracefulStopTest {
+  ExecutorService executor = Executors.newFixedThreadPool(2);
+
+  @After
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void wait_for_in_flight_requests() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+
+    WebServer server = new WebServer(routes -> routes.get("/slow", () -> {
+      started.countDown();
+      sleep(500);
+      return "DONE";
+    })).startOnRandomPort();
+
+    Future<String> response = executor.submit(() -> get(server.port(), "/slow"));
+    started.await();
+
+    int aborted = server.stopGracefully(Duration.ofSeconds(5));
+
+    assertThat(aborted).isZero();
+    assertThat(response.get()).isEqualTo("DONE");
+  }
+
+  @Test
+  public void report_aborted_requests() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+
+    WebServer server = new WebServer(routes -> routes.get("/slow", () -> {
+      started.countDown();
+      sleep(2000);
+      return "DONE";
+    })).startOnRandomPort();
+
+    executor.submit(() -> get(server.port(), "/slow"));
+    started.await();
+
+    int aborted = server.stopGracefully(Duration.ofMillis(100));
+
+    assertThat(aborted).isEqualTo(1);
+  }
+
+  @Test
+  public void wait_for_event_streams_to_close() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    EventStream events = new EventStream();
+    events.send("hello");
+
+    WebServer server = new WebServer(routes -> routes.get("/events", () -> {
+      started.countDown();
+      return events;
+    })).startOnRandomPort();
+
+    Future<String> response = executor.submit(() -> get(server.port(), "/events"));
+    started.await();
+    executor.submit(() -> {
+      sleep(300);
+      events.close();
+    });
+
+    int aborted = server.stopGracefully(Duration.ofSeconds(5));
+
+    assertThat(aborted).isZero();
+    assertThat(response.get()).isEqualTo("data: hello\n\n");
+  }
+
+  @Test
+  public void report_open_event_streams() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    EventStream events = new EventStream();
+
+    WebServer server = new WebServer(routes -> routes.get("/events", () -> {
+      started.countDown();
+      return events;
+    })).startOnRandomPort();
+
+    executor.submit(() -> get(server.port(), "/events"));
+    started.await();
+
+    int aborted = server.stopGracefully(Duration.ofMillis(100));
+
+    assertThat(aborted).isEqualTo(1);
+  }
+
+  private static String get(int port, String path) throws IOException {
+    try (InputStream input = new URL("http://localhost:" + port + path).openStream()) {
+      return InputStreams.readString(input, UTF_8);
+    }
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -79,6 +79,21 @@ public class PostTest extends AbstractWebServerTest {
     post("/postBean", "firstName", "John", "lastName", "Doe").produces("CREATED John Doe");
   }
 
+  @Test
+  public void max_body_size() {
+    server.configure(routes -> routes.
+        add(new Object() {
+          @Post("/small")
+          @MaxBodySize(16)
+          public String create(Order order) {
+            return "order " + order.quantity + "x" + order.name;
+          }
+        }));
+
+    post("/small", "{\"name\":\"foo\"}").produces("order 0xfoo");
+    post("/small", "{\"name\":\"foo\",\"quantity\":42}").produces(413);
+  }
+
   static class Human {
     String firstName;
     String lastName;
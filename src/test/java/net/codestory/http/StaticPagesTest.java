@@ -15,6 +15,7 @@
  */
 package net.codestory.http;
 
+import net.codestory.http.bundles.*;
 import net.codestory.http.testhelpers.*;
 
 import org.junit.*;
@@ -52,7 +53,15 @@ public class StaticPagesTest extends AbstractWebServerTest {
   @Test
   public void less() {
     get("/assets/style.less").produces("text/css", "body h1 {\n  color: red;\n}");
-    get("/assets/style.css.map").produces("text/plain", "\"file\":\"/assets/style.css.css\"");
+    get("/assets/style.css.map").produces("text/plain", "\"file\":\"/assets/style.css\"");
+  }
+
+  @Test
+  public void bundle() {
+    String url = Bundles.INSTANCE.url("app.css");
+
+    get(url).produces(200, "text/css", "body h1{color: red}").producesHeader("Cache-Control", "public, max-age=31536000, immutable");
+    get("/bundles/app-000000000000.css").produces(404);
   }
 
   @Test
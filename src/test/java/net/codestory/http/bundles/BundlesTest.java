@@ -0,0 +1,62 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.bundles;
+
+import static org.assertj.core.api.Assertions.*;
+
+import org.junit.*;
+import org.junit.rules.*;
+
+public class BundlesTest {
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  @Test
+  public void concatenate_compiled_css() {
+    Bundle bundle = Bundles.INSTANCE.get("app.css");
+
+    assertThat(new String(bundle.body().data())).isEqualTo("*{}\nbody h1{color: red}\n");
+    assertThat(bundle.contentType()).isEqualTo("text/css;charset=UTF-8");
+  }
+
+  @Test
+  public void concatenate_compiled_javascript() {
+    Bundle bundle = Bundles.INSTANCE.get("app.js");
+
+    assertThat(new String(bundle.body().data())).startsWith("console.log('Hello');\n").contains("console.log('Hello');").doesNotContain(";;");
+  }
+
+  @Test
+  public void fingerprinted_url() {
+    String url = Bundles.INSTANCE.url("app.css");
+
+    assertThat(url).matches("/bundles/app-[0-9a-f]{12}\\.css");
+    assertThat(Bundles.INSTANCE.find(url).name()).isEqualTo("app.css");
+    assertThat(Bundles.INSTANCE.find("/bundles/app-000000000000.css")).isNull();
+    assertThat(Bundles.INSTANCE.find("/bundles/app.css")).isNull();
+    assertThat(Bundles.INSTANCE.find("/bundles/unknown-000000000000.css")).isNull();
+    assertThat(Bundles.INSTANCE.isDeclared("/bundles/app-000000000000.css")).isTrue();
+    assertThat(Bundles.INSTANCE.isDeclared("/bundles/unknown-000000000000.css")).isFalse();
+  }
+
+  @Test
+  public void unknown_bundle() {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("Unknown bundle unknown.js");
+
+    Bundles.INSTANCE.get("unknown.js");
+  }
+}
@@ -17,25 +17,22 @@ package net.codestory.http.compilers;
 
 import static org.assertj.core.api.Assertions.*;
 
-import java.io.*;
 import java.nio.file.*;
 
 import org.junit.*;
 
-public class LessSourceMapCompilerTest {
-  LessSourceMapCompiler compiler = new LessSourceMapCompiler();
-
+public class AssetsPrecompilerTest {
   @Test
-  public void source_map() throws IOException {
-    String css = compiler.compile(Paths.get("/path/file.css.map"), "body { h1 { color: red; } }");
+  public void precompile_public_assets() {
+    int compiled = new AssetsPrecompiler(2).start().join();
+
+    assertThat(compiled).isGreaterThanOrEqualTo(5);
+  }
 
-    assertThat(css).isEqualTo("{\n" +
-        "\"version\":3,\n" +
-        "\"file\":\"/path/file.css.css\",\n" +
-        "\"lineCount\":1,\n" +
-        "\"mappings\":\"AAAAA,I,CAAOC;\",\n" +
-        "\"sources\":[\"/path/file.css.map\"],\n" +
-        "\"names\":[\"body\",\"h1\"]\n" +
-        "}\n");
+  @Test
+  public void can_compile() {
+    assertThat(Compilers.INSTANCE.canCompile(Paths.get("style.less"))).isTrue();
+    assertThat(Compilers.INSTANCE.canCompile(Paths.get("script.coffee"))).isTrue();
+    assertThat(Compilers.INSTANCE.canCompile(Paths.get("index.html"))).isFalse();
   }
 }
@@ -0,0 +1,73 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.compilers;
+
+import static java.nio.charset.StandardCharsets.*;
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+
+import net.codestory.http.misc.*;
+
+import org.junit.*;
+import org.junit.rules.*;
+
+public class CacheEntryTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void load_small_file_once() throws IOException {
+    File file = temp.newFile();
+    Files.write(file.toPath(), "Hello".getBytes(UTF_8));
+
+    CacheEntry entry = CacheEntry.loaded(file);
+    file.delete();
+
+    assertThat(entry.content()).isEqualTo("Hello");
+    assertThat(entry.size()).isEqualTo(5);
+    assertThat(entry.toBytes()).isSameAs(entry.toBytes());
+    assertThat(entry.etag()).isEqualTo("8b1a9953c4611296a827abf8c47804d7");
+  }
+
+  @Test
+  public void map_large_file() throws IOException {
+    byte[] data = new byte[CacheEntry.MAPPED_THRESHOLD + 10];
+    Arrays.fill(data, (byte) 'A');
+    File file = temp.newFile();
+    Files.write(file.toPath(), data);
+
+    CacheEntry entry = CacheEntry.loaded(file);
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    entry.writeTo(Channels.newChannel(output));
+
+    assertThat(entry.size()).isEqualTo(data.length);
+    assertThat(output.toByteArray()).isEqualTo(data);
+    assertThat(entry.toBytes()).isEqualTo(data);
+    assertThat(entry.etag()).isEqualTo(Md5.of(data));
+  }
+
+  @Test
+  public void encode_memory_entry_once() {
+    CacheEntry entry = CacheEntry.memory("Hello");
+
+    assertThat(entry.toBytes()).isSameAs(entry.toBytes()).isEqualTo("Hello".getBytes(UTF_8));
+  }
+}
@@ -15,9 +15,13 @@
  */
 package net.codestory.http.compilers;
 
+import static java.nio.charset.StandardCharsets.*;
 import static org.assertj.core.api.Assertions.*;
 
+import java.io.*;
 import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
 
 import org.junit.*;
 
@@ -49,4 +53,63 @@ public class CompilersTest {
 
     assertThat(source).isEqualTo("HelloHello");
   }
+
+  @Test
+  public void use_packaged_cache_first() {
+    Compilers.INSTANCE.register(() -> (path, source) -> {
+      throw new IllegalStateException("Should use the packaged cache");
+    }, ".packaged");
+
+    String source = Compilers.INSTANCE.compile(Paths.get("file.packaged"), "Hello").content();
+
+    assertThat(source).isEqualTo("Precompiled Hello");
+  }
+
+  @Test
+  public void cache_every_output_of_a_single_run() {
+    AtomicInteger runs = new AtomicInteger();
+    Compilers.INSTANCE.register(() -> new Compiler() {
+      @Override
+      public String compile(Path path, String source) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public Map<String, String> compileAll(String extension, Path path, String source, Set<Path> imports) {
+        runs.incrementAndGet();
+
+        Map<String, String> outputs = new HashMap<>();
+        outputs.put(".main", "main:" + source);
+        outputs.put(".main.side", "side:" + source);
+        return outputs;
+      }
+    }, ".main", ".main.side");
+
+    String content = "Source " + System.nanoTime();
+
+    assertThat(Compilers.INSTANCE.compile(Paths.get("/file.main"), content).content()).isEqualTo("main:" + content);
+    assertThat(Compilers.INSTANCE.compile(Paths.get("/file.main.side"), content).content()).isEqualTo("side:" + content);
+    assertThat(runs.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void recompile_less_when_an_import_changes() throws Exception {
+    File imported = new File(new File(ClassLoader.getSystemResource("app").toURI()), "imported.less");
+    try {
+      Files.write(imported.toPath(), "@color: red;".getBytes(UTF_8));
+      String less = "@import 'imported.less';\nbody { color: @color; }";
+
+      CacheEntry red = Compilers.INSTANCE.compile(Paths.get("importing.less"), less);
+
+      assertThat(red.content()).contains("color: red;");
+      assertThat(Compilers.INSTANCE.compile(Paths.get("importing.less"), less)).isSameAs(red);
+
+      Files.write(imported.toPath(), "@color: blue;".getBytes(UTF_8));
+      imported.setLastModified(imported.lastModified() + 2000);
+
+      assertThat(Compilers.INSTANCE.compile(Paths.get("importing.less"), less).content()).contains("color: blue;");
+    } finally {
+      imported.delete();
+    }
+  }
 }
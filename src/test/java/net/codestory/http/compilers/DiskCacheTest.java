@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.compilers;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.*;
+import org.junit.rules.*;
+
+public class DiskCacheTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void write_behind_then_read_from_disk() {
+    DiskCache cache = new DiskCache("V1", temp.getRoot(), 1000);
+
+    cache.put(".up", "sha1", "HELLO");
+    cache.flush();
+
+    assertThat(cache.get(".up", "sha1").content()).isEqualTo("HELLO");
+    assertThat(cache.get(".up", "other")).isNull();
+    assertThat(cache.size()).isEqualTo(5);
+    assertThat(new File(temp.getRoot(), "up").list()).hasSize(1);
+  }
+
+  @Test
+  public void reload_index_from_disk() {
+    DiskCache cache = new DiskCache("V1", temp.getRoot(), 1000);
+    cache.put(".up", "sha1", "HELLO");
+    cache.flush();
+
+    DiskCache other = new DiskCache("V1", temp.getRoot(), 1000);
+
+    assertThat(other.get(".up", "sha1").content()).isEqualTo("HELLO");
+    assertThat(other.size()).isEqualTo(5);
+  }
+
+  @Test
+  public void store_imports() {
+    DiskCache cache = new DiskCache("V1", temp.getRoot(), 1000);
+    cache.putImports(".less", "sha1", Arrays.asList(Paths.get("assets/reset.less"), Paths.get("assets/colors.less")));
+    cache.flush();
+
+    assertThat(cache.imports(".less", "sha1")).containsExactly(Paths.get("assets/reset.less"), Paths.get("assets/colors.less"));
+    assertThat(cache.imports(".less", "other")).isEmpty();
+  }
+
+  @Test
+  public void evict_least_recently_used() throws InterruptedException {
+    DiskCache cache = new DiskCache("V1", temp.getRoot(), 10);
+
+    cache.put(".up", "first", "FIRST");
+    cache.flush();
+    cache.put(".up", "other", "OTHER");
+    cache.flush();
+    Thread.sleep(5);
+    cache.get(".up", "first");
+    cache.put(".up", "third", "THIRD");
+    cache.flush();
+
+    assertThat(cache.size()).isEqualTo(10);
+    assertThat(new File(temp.getRoot(), "up").list()).hasSize(2);
+    assertThat(cache.get(".up", "first")).isNotNull();
+    assertThat(cache.get(".up", "other")).isNull();
+  }
+}
@@ -22,6 +22,7 @@ import static org.assertj.core.api.Assertions.*;
 
 import java.io.*;
 import java.nio.file.*;
+import java.util.*;
 
 import org.junit.*;
 import org.junit.rules.*;
@@ -53,6 +54,38 @@ public class LessCompilerTest {
     assertThat(css).isNotEmpty();
   }
 
+  @Test
+  public void source_map() throws IOException {
+    String map = lessCompiler.compile(Paths.get("/path/file.css.map"), "body { h1 { color: red; } }");
+
+    assertThat(map).isEqualTo("{\n" +
+        "\"version\":3,\n" +
+        "\"file\":\"/path/file.css\",\n" +
+        "\"lineCount\":1,\n" +
+        "\"mappings\":\"AAAAA,I,CAAOC;\",\n" +
+        "\"sources\":[\"/path/file.less\"],\n" +
+        "\"names\":[\"body\",\"h1\"]\n" +
+        "}\n");
+  }
+
+  @Test
+  public void css_and_source_map_from_a_single_run() throws IOException {
+    Map<String, String> outputs = lessCompiler.compileAll(".less", Paths.get("/path/file.less"), "body { h1 { color: red; } }", new HashSet<>());
+
+    assertThat(outputs.get(".less")).isEqualTo("body h1 {\n  color: red;\n}\n/*# sourceMappingURL=/path/file.css.map */\n");
+    assertThat(outputs.get(".css.map")).contains("\"file\":\"/path/file.css\"");
+  }
+
+  @Test
+  public void record_imports() throws IOException {
+    Set<Path> imports = new HashSet<>();
+
+    String css = lessCompiler.compile(Paths.get("file.less"), "@import 'assets/style.less';", imports);
+
+    assertThat(css).contains("body h1");
+    assertThat(imports).containsOnly(Paths.get("assets/style.less"));
+  }
+
   @Test
   public void invalid_file() throws IOException {
     thrown.expect(IOException.class);
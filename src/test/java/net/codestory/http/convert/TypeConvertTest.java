@@ -17,6 +17,7 @@ package net.codestory.http.convert;
 
 import static org.assertj.core.api.Assertions.*;
 
+import java.io.*;
 import java.util.*;
 
 import org.junit.*;
@@ -62,6 +63,19 @@ public class TypeConvertTest {
     assertThat(human.age).isEqualTo(31);
   }
 
+  @Test
+  public void write_json() throws IOException {
+    Human human = new Human();
+    human.name = "jill";
+    human.age = 28;
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    TypeConvert.writeJson(human, output);
+
+    assertThat(output.toString("UTF-8")).isEqualTo("{\"name\":\"jill\",\"age\":28}");
+    assertThat(TypeConvert.toJson(human)).isEqualTo(output.toString("UTF-8"));
+  }
+
   static class Human {
     String name;
     int age;
@@ -20,10 +20,12 @@ import static org.mockito.Mockito.*;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import net.codestory.http.filters.*;
 import net.codestory.http.internal.*;
 import net.codestory.http.payload.*;
+import net.codestory.http.security.*;
 
 import org.junit.*;
 
@@ -87,4 +89,44 @@ public class BasicAuthFilterTest {
     assertThat(filter.apply("/secure/foo", context, nextFilter).code()).isEqualTo(401);
     assertThat(filter.apply("/secure/foo/", context, nextFilter).code()).isEqualTo(401);
   }
+
+  @Test
+  public void cache_verified_credentials() throws IOException {
+    CheckPassword checkPassword = mock(CheckPassword.class);
+    when(checkPassword.check("jl", "polka")).thenReturn(true);
+    CredentialsCache cache = new CredentialsCache(1, TimeUnit.MINUTES, 10);
+    filter = new BasicAuthFilter("/secure", "codestory", checkPassword, cache);
+
+    when(context.getHeader("Authorization")).thenReturn("Basic amw6cG9sa2E=");
+    assertThat(filter.apply("/secure/foo", context, nextFilter)).isSameAs(next);
+    assertThat(filter.apply("/secure/foo", context, nextFilter)).isSameAs(next);
+    verify(checkPassword, times(1)).check("jl", "polka");
+    verify(context, times(2)).setCurrentUser("jl");
+
+    cache.invalidate("jl");
+    assertThat(filter.apply("/secure/foo", context, nextFilter)).isSameAs(next);
+    verify(checkPassword, times(2)).check("jl", "polka");
+  }
+
+  @Test
+  public void do_not_cache_rejected_credentials() throws IOException {
+    CredentialsCache cache = new CredentialsCache(1, TimeUnit.MINUTES, 10);
+    filter = new BasicAuthFilter("/secure", "codestory", (login, password) -> false, cache);
+
+    when(context.getHeader("Authorization")).thenReturn("Basic amw6cG9sa2E=");
+    assertThat(filter.apply("/secure/foo", context, nextFilter).code()).isEqualTo(401);
+    assertThat(cache.size()).isZero();
+  }
+
+  @Test
+  public void bound_cache_size() {
+    CredentialsCache cache = new CredentialsCache(1, TimeUnit.MINUTES, 2);
+    cache.verified("Basic a", "a");
+    cache.verified("Basic b", "b");
+    cache.verified("Basic c", "c");
+
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(cache.verifiedLogin("Basic a")).isNull();
+    assertThat(cache.verifiedLogin("Basic c")).isEqualTo("c");
+  }
 }
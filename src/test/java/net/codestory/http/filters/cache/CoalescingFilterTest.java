@@ -0,0 +1,140 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.filters.cache;
+
+import static java.nio.charset.StandardCharsets.*;
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.io.*;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import net.codestory.http.filters.*;
+import net.codestory.http.internal.*;
+import net.codestory.http.payload.*;
+
+import org.junit.*;
+
+public class CoalescingFilterTest {
+  AtomicInteger calls = new AtomicInteger();
+  CountDownLatch computing = new CountDownLatch(1);
+  CountDownLatch release = new CountDownLatch(1);
+  PayloadSupplier slow = () -> {
+    int call = calls.incrementAndGet();
+    computing.countDown();
+    try {
+      release.await();
+    } catch (InterruptedException e) {
+      throw new IllegalStateException(e);
+    }
+    return new Payload("text/plain", "Hello " + call);
+  };
+  Context context = mock(Context.class);
+  ExecutorService executor = Executors.newFixedThreadPool(4);
+
+  @Before
+  public void get_request() {
+    when(context.method()).thenReturn("GET");
+    when(context.keyValues()).thenReturn(new HashMap<>());
+  }
+
+  @After
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void share_concurrent_computation() throws Exception {
+    CoalescingFilter filter = new CoalescingFilter(Duration.ofSeconds(5), "/products/:id");
+
+    List<Future<Payload>> responses = concurrentRequests(filter, "/products/42");
+    release.countDown();
+
+    for (Future<Payload> response : responses) {
+      assertThat(response.get().getData("/products/42", context)).isEqualTo("Hello 1".getBytes(UTF_8));
+    }
+    assertThat(calls.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void ignore_other_routes() throws Exception {
+    CoalescingFilter filter = new CoalescingFilter(Duration.ofSeconds(5), "/products/:id");
+
+    List<Future<Payload>> responses = concurrentRequests(filter, "/other");
+    release.countDown();
+    for (Future<Payload> response : responses) {
+      response.get();
+    }
+
+    assertThat(calls.get()).isEqualTo(3);
+  }
+
+  @Test
+  public void compute_after_max_wait() throws Exception {
+    CoalescingFilter filter = new CoalescingFilter(Duration.ofMillis(50), "/");
+
+    List<Future<Payload>> responses = concurrentRequests(filter, "/");
+    Thread.sleep(200);
+    release.countDown();
+    for (Future<Payload> response : responses) {
+      response.get();
+    }
+
+    assertThat(calls.get()).isEqualTo(3);
+  }
+
+  @Test
+  public void never_share_authenticated_requests() throws Exception {
+    when(context.getHeader("Authorization")).thenReturn("Basic YWRtaW46c2VjcmV0");
+    CoalescingFilter filter = new CoalescingFilter(Duration.ofSeconds(5), "/");
+
+    List<Future<Payload>> responses = concurrentRequests(filter, "/");
+    release.countDown();
+    for (Future<Payload> response : responses) {
+      response.get();
+    }
+
+    assertThat(calls.get()).isEqualTo(3);
+  }
+
+  @Test
+  public void dont_share_response_varying_on_request_headers() throws Exception {
+    PayloadSupplier varying = slow;
+    slow = () -> varying.get().withHeader("Vary", "Accept-Language");
+    CoalescingFilter filter = new CoalescingFilter(Duration.ofSeconds(5), "/");
+
+    List<Future<Payload>> responses = concurrentRequests(filter, "/");
+    release.countDown();
+    for (Future<Payload> response : responses) {
+      response.get();
+    }
+
+    assertThat(calls.get()).isEqualTo(3);
+  }
+
+  private List<Future<Payload>> concurrentRequests(CoalescingFilter filter, String uri) throws InterruptedException {
+    List<Future<Payload>> responses = new ArrayList<>();
+    responses.add(executor.submit(() -> filter.apply(uri, context, slow)));
+    computing.await();
+    responses.add(executor.submit(() -> filter.apply(uri, context, slow)));
+    responses.add(executor.submit(() -> filter.apply(uri, context, slow)));
+    Thread.sleep(100);
+    return responses;
+  }
+}
@@ -0,0 +1,231 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.filters.cache;
+
+import static java.nio.charset.StandardCharsets.*;
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.io.*;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import net.codestory.http.filters.*;
+import net.codestory.http.internal.*;
+import net.codestory.http.payload.*;
+
+import org.junit.*;
+
+public class ResponseCacheFilterTest {
+  ResponseCacheFilter filter = new ResponseCacheFilter(1000);
+
+  AtomicInteger calls = new AtomicInteger();
+  PayloadSupplier nextFilter = () -> new Payload("text/plain", "Hello " + calls.incrementAndGet()).withHeader("Cache-Control", "public, max-age=60");
+  Context context = mock(Context.class);
+
+  @Before
+  public void get_request() {
+    when(context.method()).thenReturn("GET");
+    when(context.keyValues()).thenReturn(new HashMap<>());
+  }
+
+  @Test
+  public void cache_response() throws IOException {
+    Payload first = filter.apply("/", context, nextFilter);
+    Payload second = filter.apply("/", context, nextFilter);
+
+    assertThat(calls.get()).isEqualTo(1);
+    assertThat(second.getData("/", context)).isEqualTo("Hello 1".getBytes(UTF_8));
+    assertThat(second.getContentType("/")).isEqualTo("text/plain");
+    assertThat(second.headers()).containsEntry("Cache-Control", "public, max-age=60");
+    assertThat(first.getData("/", context)).isEqualTo(second.getData("/", context));
+  }
+
+  @Test
+  public void key_on_uri_and_query() throws IOException {
+    filter.apply("/", context, nextFilter);
+    filter.apply("/other", context, nextFilter);
+    when(context.keyValues()).thenReturn(Collections.singletonMap("page", "2"));
+    filter.apply("/", context, nextFilter);
+
+    assertThat(calls.get()).isEqualTo(3);
+  }
+
+  @Test
+  public void ignore_other_methods() throws IOException {
+    when(context.method()).thenReturn("POST");
+
+    filter.apply("/", context, nextFilter);
+    filter.apply("/", context, nextFilter);
+
+    assertThat(calls.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void ignore_responses_without_max_age() throws IOException {
+    PayloadSupplier noCache = () -> new Payload("Hello " + calls.incrementAndGet());
+
+    filter.apply("/", context, noCache);
+    filter.apply("/", context, noCache);
+
+    assertThat(calls.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void ignore_private_responses() throws IOException {
+    PayloadSupplier privateResponse = () -> new Payload("Hello " + calls.incrementAndGet()).withHeader("Cache-Control", "private, max-age=60");
+
+    filter.apply("/", context, privateResponse);
+    filter.apply("/", context, privateResponse);
+
+    assertThat(calls.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void vary_on_headers() throws IOException {
+    PayloadSupplier byLanguage = () -> new Payload("Hello " + calls.incrementAndGet()).withHeader("Cache-Control", "max-age=60").withHeader("Vary", "Accept-Language");
+
+    when(context.getHeader("Accept-Language")).thenReturn("fr");
+    filter.apply("/", context, byLanguage);
+    filter.apply("/", context, byLanguage);
+    when(context.getHeader("Accept-Language")).thenReturn("en");
+    filter.apply("/", context, byLanguage);
+    filter.apply("/", context, byLanguage);
+
+    assertThat(calls.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void never_cache_requests_with_cookies() throws IOException {
+    PayloadSupplier byUser = () -> new Payload("Hello " + context.getHeader("Cookie")).withHeader("Cache-Control", "max-age=60");
+
+    when(context.getHeader("Cookie")).thenReturn("user=bob");
+    Payload bob = filter.apply("/", context, byUser);
+    when(context.getHeader("Cookie")).thenReturn("user=joe");
+    Payload joe = filter.apply("/", context, byUser);
+
+    assertThat(bob.rawContent()).isEqualTo("Hello user=bob");
+    assertThat(joe.rawContent()).isEqualTo("Hello user=joe");
+    assertThat(filter.size()).isZero();
+  }
+
+  @Test
+  public void never_cache_authenticated_requests() throws IOException {
+    when(context.getHeader("Authorization")).thenReturn("Basic YWRtaW46c2VjcmV0");
+    filter.apply("/", context, nextFilter);
+    filter.apply("/", context, nextFilter);
+
+    assertThat(calls.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void invalidate() throws IOException {
+    filter.apply("/", context, nextFilter);
+    filter.invalidate("/");
+    filter.apply("/", context, nextFilter);
+
+    assertThat(calls.get()).isEqualTo(2);
+    assertThat(filter.size()).isPositive();
+
+    filter.invalidateAll();
+
+    assertThat(filter.size()).isZero();
+  }
+
+  @Test
+  public void evict_least_recently_used() throws IOException {
+    ResponseCacheFilter smallCache = new ResponseCacheFilter("/", 20, false);
+
+    smallCache.apply("/first", context, nextFilter);
+    smallCache.apply("/second", context, nextFilter);
+    smallCache.apply("/third", context, nextFilter);
+    smallCache.apply("/first", context, nextFilter);
+
+    assertThat(calls.get()).isEqualTo(4);
+    assertThat(smallCache.size()).isLessThanOrEqualTo(20);
+  }
+
+  @Test
+  public void evict_entry_served_gzipped() throws IOException {
+    ResponseCacheFilter smallCache = new ResponseCacheFilter("/", 20, false);
+
+    Payload first = smallCache.apply("/first", context, nextFilter);
+    ((PreparedBody) first.rawContent()).gzipped();
+    smallCache.apply("/second", context, nextFilter);
+    smallCache.apply("/third", context, nextFilter);
+
+    assertThat(smallCache.size()).isEqualTo(14);
+  }
+
+  @Test
+  public void compute_once_for_concurrent_requests() throws Exception {
+    CountDownLatch computing = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    PayloadSupplier slow = () -> {
+      computing.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+      return nextFilter.get();
+    };
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    List<Future<Payload>> responses = new ArrayList<>();
+    responses.add(executor.submit(() -> filter.apply("/", context, slow)));
+    computing.await();
+    for (int i = 0; i < 3; i++) {
+      responses.add(executor.submit(() -> filter.apply("/", context, slow)));
+    }
+    Thread.sleep(100);
+    release.countDown();
+
+    for (Future<Payload> response : responses) {
+      assertThat(response.get().getData("/", context)).isEqualTo("Hello 1".getBytes(UTF_8));
+    }
+    assertThat(calls.get()).isEqualTo(1);
+    executor.shutdown();
+  }
+
+  @Test
+  public void compute_after_max_wait() throws Exception {
+    ResponseCacheFilter impatient = new ResponseCacheFilter("/", 1000, false, Duration.ofMillis(50));
+    CountDownLatch computing = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    PayloadSupplier hanging = () -> {
+      computing.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+      return nextFilter.get();
+    };
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    executor.submit(() -> impatient.apply("/", context, hanging));
+    computing.await();
+
+    Payload follower = impatient.apply("/", context, nextFilter);
+
+    assertThat(follower.getData("/", context)).isEqualTo("Hello 1".getBytes(UTF_8));
+    release.countDown();
+    executor.shutdown();
+  }
+}
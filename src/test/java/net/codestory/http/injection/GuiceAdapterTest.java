@@ -17,6 +17,8 @@ package net.codestory.http.injection;
 
 import static org.assertj.core.api.Assertions.*;
 
+import java.util.function.*;
+
 import org.junit.*;
 
 import com.google.inject.*;
@@ -35,4 +37,23 @@ public class GuiceAdapterTest {
 
     assertThat(bean).isEqualTo("Bean");
   }
+
+  @Test
+  public void cache_singletons() {
+    GuiceAdapter adapter = new GuiceAdapter(new AbstractModule() {
+      @Override
+      protected void configure() {
+        bind(Service.class).in(Singleton.class);
+      }
+    });
+
+    Supplier<Service> singleton = adapter.supplier(Service.class);
+    Supplier<Object> prototype = adapter.supplier(Object.class);
+
+    assertThat(singleton.get()).isSameAs(singleton.get()).isSameAs(adapter.get(Service.class));
+    assertThat(prototype.get()).isNotSameAs(prototype.get());
+  }
+
+  public static class Service {
+  }
 }
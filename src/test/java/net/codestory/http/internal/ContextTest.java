@@ -15,17 +15,23 @@
  */
 package net.codestory.http.internal;
 
+import static java.nio.charset.StandardCharsets.*;
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
+import java.io.*;
+import java.util.zip.*;
+
+import net.codestory.http.errors.*;
 import net.codestory.http.injection.*;
+import net.codestory.http.transport.*;
 
 import org.junit.*;
 import org.simpleframework.http.*;
 
 public class ContextTest {
-  Request request = mock(Request.class);
-  Response response = mock(Response.class);
+  HttpRequest request = mock(HttpRequest.class);
+  HttpResponse response = mock(HttpResponse.class);
   IocAdapter iocAdapter = mock(IocAdapter.class);
 
   Context context = new Context(request, response, iocAdapter);
@@ -46,7 +52,7 @@ public class ContextTest {
 
   @Test
   public void cookie_value() {
-    when(request.getCookie("name")).thenReturn(new Cookie("name", "value"));
+    when(request.cookie("name")).thenReturn(new Cookie("name", "value"));
 
     String value = context.cookieValue("name", "default");
 
@@ -55,7 +61,7 @@ public class ContextTest {
 
   @Test
   public void json_cookie_json_by_type() {
-    when(request.getCookie("name")).thenReturn(new Cookie("name", "{\"name\": \"Bob\", \"quantity\": 42}"));
+    when(request.cookie("name")).thenReturn(new Cookie("name", "{\"name\": \"Bob\", \"quantity\": 42}"));
 
     Order order = context.cookieValue("name", Order.class);
 
@@ -73,7 +79,7 @@ public class ContextTest {
 
   @Test
   public void json_cookie() {
-    when(request.getCookie("name")).thenReturn(new Cookie("name", "{\"name\": \"Joe\", \"quantity\": 12}"));
+    when(request.cookie("name")).thenReturn(new Cookie("name", "{\"name\": \"Joe\", \"quantity\": 12}"));
 
     Order order = context.cookieValue("name", new Order());
 
@@ -91,6 +97,82 @@ public class ContextTest {
     assertThat(actualService).isSameAs(expectedService);
   }
 
+  @Test
+  public void gzipped_content() throws IOException {
+    ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(gzipped)) {
+      gzip.write("{\"name\": \"Bob\", \"quantity\": 42}".getBytes(UTF_8));
+    }
+    when(request.header("Content-Encoding")).thenReturn("gzip");
+    when(request.inputStream()).thenReturn(new ByteArrayInputStream(gzipped.toByteArray()));
+
+    Order order = context.contentAs(Order.class);
+
+    assertThat(order.name).isEqualTo("Bob");
+    assertThat(order.quantity).isEqualTo(42);
+  }
+
+  @Test(expected = RequestEntityTooLargeException.class)
+  public void reject_large_content_length() throws IOException {
+    when(request.header("Content-Length")).thenReturn("1000");
+    context.setMaxBodySize(10);
+
+    context.content();
+  }
+
+  @Test(expected = BadRequestException.class)
+  public void reject_invalid_content_length() throws IOException {
+    when(request.header("Content-Length")).thenReturn("ten");
+
+    context.content();
+  }
+
+  @Test(expected = BadRequestException.class)
+  public void reject_malformed_gzip_content() throws IOException {
+    when(request.header("Content-Encoding")).thenReturn("gzip");
+    when(request.inputStream()).thenReturn(new ByteArrayInputStream("not gzipped".getBytes(UTF_8)));
+
+    context.content();
+  }
+
+  @Test(expected = BadRequestException.class)
+  public void reject_truncated_gzip_content() throws IOException {
+    ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(gzipped)) {
+      gzip.write(new byte[1000]);
+    }
+    when(request.header("Content-Encoding")).thenReturn("gzip");
+    when(request.inputStream()).thenReturn(new ByteArrayInputStream(gzipped.toByteArray(), 0, gzipped.size() - 10));
+
+    context.content();
+  }
+
+  @Test(expected = RequestEntityTooLargeException.class)
+  public void reject_large_decompressed_json() throws IOException {
+    ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(gzipped)) {
+      gzip.write(("{\"name\":\"" + new String(new char[1000]).replace('\0', 'a') + "\"}").getBytes(UTF_8));
+    }
+    when(request.header("Content-Encoding")).thenReturn("gzip");
+    when(request.inputStream()).thenReturn(new ByteArrayInputStream(gzipped.toByteArray()));
+    context.setMaxBodySize(100);
+
+    context.contentAs(Order.class);
+  }
+
+  @Test(expected = RequestEntityTooLargeException.class)
+  public void reject_large_decompressed_content() throws IOException {
+    ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(gzipped)) {
+      gzip.write(new byte[1000]);
+    }
+    when(request.header("Content-Encoding")).thenReturn("gzip");
+    when(request.inputStream()).thenReturn(new ByteArrayInputStream(gzipped.toByteArray()));
+    context.setMaxBodySize(100);
+
+    context.content();
+  }
+
   static class Order {
     String name;
     int quantity;
@@ -22,20 +22,29 @@ import static org.mockito.Mockito.*;
 import java.io.*;
 import java.nio.file.*;
 import java.util.*;
+import java.util.stream.*;
+import java.util.zip.*;
 
+import net.codestory.http.constants.*;
 import net.codestory.http.internal.*;
+import net.codestory.http.io.*;
+import net.codestory.http.misc.*;
+import net.codestory.http.transport.*;
 
 import org.junit.*;
 import org.simpleframework.http.*;
 
+import com.fasterxml.jackson.databind.node.*;
+
 public class PayloadTest {
   Context context = mock(Context.class);
-  Response response = mock(Response.class);
+  HttpResponse response = mock(HttpResponse.class);
+  ByteArrayOutputStream output = new ByteArrayOutputStream();
 
   @Before
   public void setupContext() throws IOException {
     when(context.response()).thenReturn(response);
-    when(response.getOutputStream()).thenReturn(new ByteArrayOutputStream());
+    when(response.outputStream()).thenReturn(output);
   }
 
   @Test
@@ -94,7 +103,7 @@ public class PayloadTest {
     Payload payload = new Payload("text/plain", Optional.empty());
     payload.writeTo(context);
 
-    verify(response).setStatus(Status.NOT_FOUND);
+    verify(response).setStatus(HttpStatus.NOT_FOUND);
     verify(response).setContentLength(0);
     verifyNoMoreInteractions(response);
   }
@@ -104,8 +113,8 @@ public class PayloadTest {
     Payload payload = Payload.seeOther("/url");
     payload.writeTo(context);
 
-    verify(response).setValue("Location", "/url");
-    verify(response).setStatus(Status.SEE_OTHER);
+    verify(response).setHeader("Location", "/url");
+    verify(response).setStatus(HttpStatus.SEE_OTHER);
     verify(response).setContentLength(0);
     verifyNoMoreInteractions(response);
   }
@@ -115,7 +124,7 @@ public class PayloadTest {
     Payload payload = Payload.forbidden();
     payload.writeTo(context);
 
-    verify(response).setStatus(Status.FORBIDDEN);
+    verify(response).setStatus(HttpStatus.FORBIDDEN);
     verify(response).setContentLength(0);
     verifyNoMoreInteractions(response);
   }
@@ -125,8 +134,8 @@ public class PayloadTest {
     Payload payload = Payload.movedPermanently("/url");
     payload.writeTo(context);
 
-    verify(response).setValue("Location", "/url");
-    verify(response).setStatus(Status.MOVED_PERMANENTLY);
+    verify(response).setHeader("Location", "/url");
+    verify(response).setStatus(HttpStatus.MOVED_PERMANENTLY);
     verify(response).setContentLength(0);
     verifyNoMoreInteractions(response);
   }
@@ -136,7 +145,7 @@ public class PayloadTest {
     Payload payload = new Payload(Paths.get("hello.md"));
     payload.writeTo(context);
 
-    verify(response).setValue(eq("Last-Modified"), anyString());
+    verify(response).setHeader(eq("Last-Modified"), anyString());
   }
 
   @Test
@@ -183,8 +192,8 @@ public class PayloadTest {
     Payload payload = new Payload("Hello");
     payload.writeTo(context);
 
-    verify(response).setStatus(Status.OK);
-    verify(response).setValue("ETag", "8b1a9953c4611296a827abf8c47804d7");
+    verify(response).setStatus(HttpStatus.OK);
+    verify(response).setHeader("ETag", "8b1a9953c4611296a827abf8c47804d7");
   }
 
   @Test
@@ -194,7 +203,57 @@ public class PayloadTest {
     Payload payload = new Payload("Hello");
     payload.writeTo(context);
 
-    verify(response).setStatus(Status.NOT_MODIFIED);
+    verify(response).setStatus(HttpStatus.NOT_MODIFIED);
+  }
+
+  @Test
+  public void single_range() throws IOException {
+    when(context.getHeader("Range")).thenReturn("bytes=1-3");
+
+    Payload payload = new Payload("Hello".getBytes(UTF_8));
+    payload.writeTo(context);
+
+    verify(response).setStatus(HttpStatus.PARTIAL_CONTENT);
+    verify(response).setHeader("Accept-Ranges", "bytes");
+    verify(response).setHeader("Content-Range", "bytes 1-3/5");
+    verify(response).setContentLength(3L);
+    assertThat(output.toString()).isEqualTo("ell");
+  }
+
+  @Test
+  public void multiple_ranges() throws IOException {
+    when(context.getHeader("Range")).thenReturn("bytes=0-0,-2");
+
+    Payload payload = new Payload("Hello".getBytes(UTF_8));
+    payload.writeTo(context);
+
+    verify(response).setStatus(HttpStatus.PARTIAL_CONTENT);
+    verify(response).setHeader(eq("Content-Type"), startsWith("multipart/byteranges; boundary="));
+    assertThat(output.toString()).contains("Content-Range: bytes 0-0/5\r\n\r\nH\r\n").contains("Content-Range: bytes 3-4/5\r\n\r\nlo\r\n");
+  }
+
+  @Test
+  public void unsatisfiable_range() throws IOException {
+    when(context.getHeader("Range")).thenReturn("bytes=10-");
+
+    Payload payload = new Payload("Hello".getBytes(UTF_8));
+    payload.writeTo(context);
+
+    verify(response).setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+    verify(response).setHeader("Content-Range", "bytes */5");
+    assertThat(output.size()).isZero();
+  }
+
+  @Test
+  public void ignore_range_when_if_range_does_not_match() throws IOException {
+    when(context.getHeader("Range")).thenReturn("bytes=1-3");
+    when(context.getHeader("If-Range")).thenReturn("\"outdated\"");
+
+    Payload payload = new Payload("Hello".getBytes(UTF_8));
+    payload.writeTo(context);
+
+    verify(response).setStatus(HttpStatus.OK);
+    assertThat(output.toString()).isEqualTo("Hello");
   }
 
   @Test
@@ -204,9 +263,161 @@ public class PayloadTest {
     Payload payload = new Payload("Hello");
     payload.writeTo(context);
 
-    verify(response).setStatus(Status.OK);
+    verify(response).setStatus(HttpStatus.OK);
+    verify(response, never()).setContentLength(anyInt());
+    verify(response, never()).outputStream();
+  }
+
+  @Test
+  public void stream_as_server_sent_events() throws IOException {
+    when(context.getHeader("Accept")).thenReturn("text/event-stream");
+
+    Payload payload = new Payload(Stream.of("Hello", "multi\nline", new Person("Bob", 42)));
+    payload.writeTo(context);
+
+    verify(response).setHeader("Content-Type", "text/event-stream");
+    verify(response).setHeader("Cache-Control", "no-cache");
     verify(response, never()).setContentLength(anyInt());
-    verify(response, never()).getOutputStream();
+    assertThat(output.toString()).isEqualTo("data: Hello\n\ndata: multi\ndata: line\n\ndata: {\"name\":\"Bob\",\"age\":42}\n\n");
+  }
+
+  @Test
+  public void stream_as_json_lines() throws IOException {
+    Payload payload = new Payload("application/x-ndjson", Stream.of(new Person("Bob", 42), new Person("Joe", 12)));
+    payload.writeTo(context);
+
+    assertThat(output.toString()).isEqualTo("{\"name\":\"Bob\",\"age\":42}\n{\"name\":\"Joe\",\"age\":12}\n");
+  }
+
+  @Test
+  public void stream_as_json_array() throws IOException {
+    Payload payload = new Payload(Stream.of(new Person("Bob", 42), new Person("Joe", 12)));
+    payload.writeTo(context);
+
+    verify(response).setHeader("Content-Type", "application/json;charset=UTF-8");
+    verify(response, never()).setContentLength(anyLong());
+    verify(response, never()).setHeader(eq("ETag"), anyString());
+    assertThat(output.toString()).isEqualTo("[{\"name\":\"Bob\",\"age\":42},{\"name\":\"Joe\",\"age\":12}]");
+  }
+
+  @Test
+  public void iterator_as_json_lines_on_demand() throws IOException {
+    when(context.getHeader("Accept")).thenReturn("application/x-ndjson");
+
+    Payload payload = new Payload(Arrays.asList("A", "B").iterator());
+    payload.writeTo(context);
+
+    verify(response).setHeader("Content-Type", "application/x-ndjson");
+    assertThat(output.toString()).isEqualTo("\"A\"\n\"B\"\n");
+  }
+
+  @Test
+  public void empty_stream_as_json_array() throws IOException {
+    new Payload(Stream.empty()).writeTo(context);
+
+    assertThat(output.toString()).isEqualTo("[]");
+  }
+
+  @Test
+  public void json_nodes_are_not_streamed() throws IOException {
+    ObjectNode node = JsonNodeFactory.instance.objectNode().put("name", "Bob");
+    new Payload(node).writeTo(context);
+
+    verify(response).setContentLength(14);
+    assertThat(output.toString()).isEqualTo("{\"name\":\"Bob\"}");
+  }
+
+  @Test
+  public void collections_are_not_streamed() throws IOException {
+    new Payload(Arrays.asList("A", "B")).writeTo(context);
+
+    verify(response).setContentLength(9);
+    assertThat(output.toString()).isEqualTo("[\"A\",\"B\"]");
+  }
+
+  @Test
+  public void prepare_constant_content() throws IOException {
+    Payload payload = (Payload) Payload.prepare(new Payload("text/plain", "Hello").withHeader("X-Custom", "value"));
+
+    assertThat(payload.rawContent()).isInstanceOf(PreparedBody.class);
+    assertThat(payload.getContentType("/")).isEqualTo("text/plain");
+    assertThat(payload.getData("/", context)).isEqualTo("Hello".getBytes(UTF_8));
+    assertThat(payload.headers()).containsEntry("X-Custom", "value");
+  }
+
+  @Test
+  public void do_not_prepare_dynamic_content() {
+    java.nio.file.Path path = Paths.get("index.html");
+    InputStream stream = new ByteArrayInputStream(new byte[0]);
+    Person person = new Person("NAME", 42);
+
+    assertThat(Payload.prepare(path)).isSameAs(path);
+    assertThat(Payload.prepare(stream)).isSameAs(stream);
+    assertThat(Payload.prepare(person)).isSameAs(person);
+    assertThat(Payload.prepare(null)).isNull();
+  }
+
+  @Test
+  public void close_stream() throws IOException {
+    Stream<String> stream = mock(Stream.class);
+    when(stream.iterator()).thenReturn(Arrays.asList("A", "B").iterator());
+
+    new Payload(stream).writeTo(context);
+
+    verify(stream).close();
+  }
+
+  @Test
+  public void event_stream_keeps_the_response_open() throws IOException {
+    EventStream events = new EventStream();
+    events.send("before");
+
+    new Payload(events).writeTo(context);
+    events.send("tick", 1);
+
+    verify(context).startAsync();
+    verify(response, never()).close();
+    assertThat(output.toString()).isEqualTo("data: before\n\nevent: tick\ndata: 1\n\n");
+
+    events.close();
+
+    verify(response).close();
+    assertThat(events.send("after")).isFalse();
+  }
+
+  @Test
+  public void prepared_body() throws IOException {
+    PreparedBody body = new PreparedBody("Hello".getBytes(UTF_8), true);
+    when(context.getHeader("Accept-Encoding")).thenReturn("gzip");
+
+    new Payload("text/plain", body).writeTo(context);
+
+    verify(response).setHeader("ETag", "8b1a9953c4611296a827abf8c47804d7");
+    verify(response).setHeader("Content-Encoding", "gzip");
+    verify(response).setContentLength(body.gzipped().length);
+    assertThat(output.toByteArray()).isEqualTo(body.gzipped());
+  }
+
+  @Test
+  public void json() throws IOException {
+    new Payload(new Person("Bob", 42)).writeTo(context);
+
+    byte[] json = "{\"name\":\"Bob\",\"age\":42}".getBytes(UTF_8);
+    verify(response).setHeader("ETag", Md5.of(json));
+    verify(response).setContentLength(json.length);
+    assertThat(output.toByteArray()).isEqualTo(json);
+  }
+
+  @Test
+  public void gzipped_json() throws IOException {
+    when(context.getHeader("Accept-Encoding")).thenReturn("gzip");
+
+    new Payload(new Person("Bob", 42)).writeTo(context);
+
+    verify(response).setHeader("Content-Encoding", "gzip");
+    try (InputStream input = new GZIPInputStream(new ByteArrayInputStream(output.toByteArray()))) {
+      assertThat(InputStreams.readString(input, UTF_8)).isEqualTo("{\"name\":\"Bob\",\"age\":42}");
+    }
   }
 
   static class Person {
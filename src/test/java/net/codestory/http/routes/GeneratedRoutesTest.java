@@ -0,0 +1,81 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.routes;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.*;
+
+import net.codestory.http.annotations.*;
+
+import org.junit.*;
+
+public class GeneratedRoutesTest {
+  @Test
+  public void generate_route_table() throws Throwable {
+    List<ResourceMethod> methods = ((GeneratedRoutes) Class.forName(GeneratedRoutes.className(Resource.class)).newInstance()).methods();
+
+    assertThat(methods).hasSize(3);
+
+    ResourceMethod hello = find(methods, "/api/hello/:count");
+    assertThat(hello.httpMethod()).isEqualTo("GET");
+    assertThat(hello.parameterTypes()).containsExactly(int.class);
+    assertThat(hello.contentType()).isEqualTo("text/plain");
+    assertThat(hello.invoker().invoke(new Resource(), new Object[]{3})).isEqualTo("HelloHelloHello");
+
+    ResourceMethod save = find(methods, "/api/save");
+    assertThat(save.httpMethod()).isEqualTo("POST");
+    assertThat(save.maxBodySize()).isEqualTo(1024L);
+    assertThat(save.invoker().invoke(new Resource(), new Object[0])).isNull();
+
+    assertThat(find(methods, "/api/bonjour/:count").httpMethod()).isEqualTo("GET");
+  }
+
+  @Test(expected = ClassNotFoundException.class)
+  public void fallback_to_reflection_for_inaccessible_resources() throws ClassNotFoundException {
+    Class.forName(GeneratedRoutes.className(PrivateResource.class));
+  }
+
+  private static ResourceMethod find(List<ResourceMethod> methods, String uriPattern) {
+    return methods.stream().filter(method -> method.uriPattern().equals(uriPattern)).findFirst().get();
+  }
+
+  @Prefix("/api")
+  public static class Resource {
+    @Get("/hello/:count")
+    @Get("/bonjour/:count")
+    @Produces("text/plain")
+    public String hello(int count) {
+      String hello = "";
+      for (int i = 0; i < count; i++) {
+        hello += "Hello";
+      }
+      return hello;
+    }
+
+    @Post("/save")
+    @MaxBodySize(1024)
+    public void save() {
+    }
+  }
+
+  private static class PrivateResource {
+    @Get("/")
+    public String index() {
+      return "Index";
+    }
+  }
+}
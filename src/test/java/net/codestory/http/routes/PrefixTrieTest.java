@@ -0,0 +1,37 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.routes;
+
+import static org.assertj.core.api.Assertions.*;
+
+import org.junit.*;
+
+public class PrefixTrieTest {
+  @Test
+  public void match_prefixes_in_registration_order() {
+    PrefixTrie<String> trie = new PrefixTrie<>();
+    trie.put("/admin/logs", "logs");
+    trie.put("", "all");
+    trie.put("/admin", "admin");
+    trie.put("/api", "api");
+    trie.put("/admin", "admin2");
+
+    assertThat(trie.matching("/")).containsExactly("all");
+    assertThat(trie.matching("/admin/logs/today")).containsExactly("logs", "all", "admin", "admin2");
+    assertThat(trie.matching("/admin/users")).containsExactly("all", "admin", "admin2");
+    assertThat(trie.matching("/ap")).containsExactly("all");
+  }
+}
@@ -61,6 +61,13 @@ public class HandlebarsCompilerTest {
     assertThat(result).isEqualTo("Hello Joe");
   }
 
+  @Test
+  public void bundle_helper() throws IOException {
+    String result = compiler.compile("<link href=\"[[bundle \"app.css\"]]\">", map("name", "joe"));
+
+    assertThat(result).matches("<link href=\"/bundles/app-[0-9a-f]{12}\\.css\">");
+  }
+
   @Test
   public void java_getters_and_fields() throws IOException {
     String result = compiler.compile("[[bean.name]] is [[bean.age]]", map("bean", new JavaBean("Bob", 12)));
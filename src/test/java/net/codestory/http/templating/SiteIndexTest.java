@@ -0,0 +1,109 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.templating;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.*;
+
+public class SiteIndexTest {
+  SiteIndex index = SiteIndex.load();
+
+  @Test
+  public void load_pages_in_path_order() {
+    List<String> paths = new ArrayList<>();
+    index.pages().forEach(page -> paths.add(page.get("path").toString()));
+
+    assertThat(paths).hasSize(24).isEqualTo(new ArrayList<>(new TreeSet<>(paths)));
+    assertThat(index.tags().get("scala").get(0).get("path").toString()).isEqualTo("posts/bye.md");
+  }
+
+  @Test
+  public void update_changed_page_in_place() {
+    List<Map<String, Object>> before = index.pages();
+
+    index.update("posts/hello.md");
+
+    assertThat(index.pages()).hasSize(24).isNotSameAs(before);
+    assertThat(index.tags().get("java")).hasSize(1);
+    assertThat(index.tags().get("scala")).hasSize(2);
+    assertThat(index.tags().get("scala").get(1).get("path").toString()).isEqualTo("posts/hello.md");
+    assertThat(index.categories().get("test")).hasSize(1);
+  }
+
+  @Test
+  public void keep_pages_of_modified_directory() {
+    List<Map<String, Object>> before = index.pages();
+
+    index.update("posts");
+
+    assertThat(index.pages()).hasSize(24).containsExactlyElementsOf(before);
+    assertThat(index.pages().get(0)).isSameAs(before.get(0));
+    assertThat(index.tags().get("scala")).hasSize(2);
+    assertThat(index.categories()).hasSize(3);
+  }
+
+  @Test
+  public void remove_pages_of_deleted_directory() throws Exception {
+    Path posts = Paths.get(ClassLoader.getSystemResource("app/posts").toURI());
+    Path moved = posts.resolveSibling("posts.moved");
+
+    Files.move(posts, moved);
+    try {
+      index.update("posts/unknown.md");
+      index.update("posts");
+    } finally {
+      Files.move(moved, posts);
+    }
+
+    assertThat(index.pages()).hasSize(22);
+    assertThat(index.tags()).doesNotContainKey("scala").doesNotContainKey("java");
+    assertThat(index.categories()).hasSize(1);
+  }
+
+  @Test
+  public void remove_deleted_page() throws Exception {
+    Path hello = Paths.get(ClassLoader.getSystemResource("app/posts/hello.md").toURI());
+    Path moved = hello.resolveSibling("hello.md.moved");
+
+    Files.move(hello, moved);
+    try {
+      index.update("posts/hello.md");
+    } finally {
+      Files.move(moved, hello);
+    }
+
+    assertThat(index.pages()).hasSize(23);
+    assertThat(index.tags().get("scala")).hasSize(1);
+  }
+
+  @Test
+  public void update_data() {
+    index.update("_data/members.yml");
+
+    assertThat(index.data()).hasSize(2);
+    assertThat((List) index.data().get("members")).hasSize(3);
+  }
+
+  @Test
+  public void reuse_snapshots() {
+    assertThat(index.pages()).isSameAs(index.pages());
+    assertThat(index.tags()).isSameAs(index.tags());
+  }
+}
@@ -0,0 +1,202 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.transport;
+
+import static java.nio.charset.StandardCharsets.*;
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.*;
+import java.net.*;
+import java.time.*;
+import java.util.stream.*;
+
+import net.codestory.http.*;
+import net.codestory.http.io.*;
+import net.codestory.http.payload.*;
+
+import org.junit.*;
+import org.simpleframework.http.*;
+
+public class NioTransportTest {
+  static WebServer server;
+
+  @BeforeClass
+  public static void start() {
+    server = new WebServer(new NioTransport(4), routes -> routes
+        .get("/hello/:name", (context, name) -> "Hello " + name)
+        .get("/query", context -> context.get("key"))
+        .post("/form", context -> context.get("name") + " " + context.contentAsString())
+        .post("/size", context -> context.content().length)
+        .post("/limited", context -> {
+          context.setMaxBodySize(16);
+          return context.contentAsString();
+        })
+        .get("/cookie", context -> context.cookieValue("name", "none"))
+        .get("/accepted", () -> new Payload(202))
+        .get("/unknown-status", () -> new Payload(299))
+        .get("/session", () -> {
+          Cookie cookie = new Cookie("session", "secret", "/", true);
+          cookie.setSecure(true);
+          cookie.setProtected(true);
+          return new Payload("ok").withCookie(cookie);
+        })
+        .get("/events", () -> Stream.of("first", "second")))
+        .startOnRandomPort();
+  }
+
+  @AfterClass
+  public static void stop() {
+    server.stop();
+  }
+
+  @Test
+  public void get() throws IOException {
+    HttpURLConnection connection = open("/hello/Bob%20Marley");
+
+    assertThat(connection.getResponseCode()).isEqualTo(200);
+    assertThat(connection.getHeaderField("Content-Type")).isEqualTo("text/html;charset=UTF-8");
+    assertThat(read(connection)).isEqualTo("Hello Bob Marley");
+  }
+
+  @Test
+  public void query_parameters_and_cookies() throws IOException {
+    assertThat(read(open("/query?key=a+b%26c"))).isEqualTo("a b&c");
+
+    HttpURLConnection connection = open("/cookie");
+    connection.setRequestProperty("Cookie", "other=1; name=value");
+    assertThat(read(connection)).isEqualTo("value");
+  }
+
+  @Test
+  public void post_form() throws IOException {
+    HttpURLConnection connection = open("/form");
+    connection.setRequestMethod("POST");
+    connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+    connection.setDoOutput(true);
+    try (OutputStream output = connection.getOutputStream()) {
+      output.write("name=Joe".getBytes(UTF_8));
+    }
+
+    assertThat(read(connection)).isEqualTo("Joe name=Joe");
+  }
+
+  @Test
+  public void stream_large_body() throws IOException {
+    HttpURLConnection connection = open("/size");
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    try (OutputStream output = connection.getOutputStream()) {
+      output.write(new byte[1024 * 1024]);
+    }
+
+    assertThat(read(connection)).isEqualTo("1048576");
+  }
+
+  @Test
+  public void reject_large_body_before_receiving_it() throws IOException {
+    try (Socket socket = new Socket("localhost", server.port())) {
+      socket.setSoTimeout(5000);
+      socket.getOutputStream().write("POST /limited HTTP/1.1\r\nHost: localhost\r\nContent-Length: 2000000000\r\n\r\nabc".getBytes(US_ASCII));
+
+      String response = InputStreams.readString(socket.getInputStream(), UTF_8);
+
+      assertThat(response).startsWith("HTTP/1.1 413").contains("Connection: close");
+    }
+  }
+
+  @Test
+  public void secure_http_only_cookie() throws IOException {
+    HttpURLConnection connection = open("/session");
+
+    assertThat(connection.getHeaderField("Set-Cookie")).isEqualTo("session=secret; path=/; secure; httponly");
+  }
+
+  @Test
+  public void chunked_stream() throws IOException {
+    HttpURLConnection connection = open("/events");
+
+    assertThat(connection.getHeaderField("Transfer-Encoding")).isEqualTo("chunked");
+    assertThat(read(connection)).isEqualTo("[\"first\",\"second\"]");
+  }
+
+  @Test
+  public void not_found() throws IOException {
+    assertThat(open("/unknown").getResponseCode()).isEqualTo(404);
+  }
+
+  @Test
+  public void reason_phrases() throws IOException {
+    assertThat(open("/accepted").getHeaderField(0)).isEqualTo("HTTP/1.1 202 Accepted");
+    assertThat(open("/unknown-status").getHeaderField(0)).isEqualTo("HTTP/1.1 299");
+  }
+
+  @Test
+  public void pipelined_requests_on_a_kept_alive_connection() throws IOException {
+    try (Socket socket = new Socket("localhost", server.port())) {
+      OutputStream output = socket.getOutputStream();
+      output.write(("GET /hello/A HTTP/1.1\r\nHost: localhost\r\n\r\n" +
+          "GET /hello/B HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n").getBytes(US_ASCII));
+      output.flush();
+
+      String responses = InputStreams.readString(socket.getInputStream(), UTF_8);
+
+      assertThat(responses).startsWith("HTTP/1.1 200 OK\r\n");
+      assertThat(responses.indexOf("Hello A")).isLessThan(responses.indexOf("Hello B"));
+      assertThat(responses).contains("Connection: close");
+    }
+  }
+
+  @Test
+  public void connector_options() throws IOException {
+    ConnectorOptions options = new ConnectorOptions()
+        .withHost("127.0.0.1")
+        .withBacklog(16)
+        .withMaxRequestsPerConnection(1)
+        .withKeepAliveTimeout(Duration.ofMillis(100));
+
+    WebServer tuned = new WebServer(new NioTransport(2), routes -> routes.get("/", "Hello"));
+    try {
+      int first = server.port() + 1;
+      tuned.start(first, options).start(first + 1, options);
+
+      for (int port : tuned.ports()) {
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+          socket.getOutputStream().write("GET / HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(US_ASCII));
+
+          String response = InputStreams.readString(socket.getInputStream(), UTF_8);
+          assertThat(response).contains("Connection: close").endsWith("Hello");
+        }
+      }
+
+      try (Socket idle = new Socket("127.0.0.1", first)) {
+        idle.setSoTimeout(5000);
+        assertThat(idle.getInputStream().read()).isEqualTo(-1);
+      }
+    } finally {
+      tuned.stop();
+    }
+  }
+
+  private static HttpURLConnection open(String path) throws IOException {
+    return (HttpURLConnection) new URL("http://localhost:" + server.port() + path).openConnection();
+  }
+
+  private static String read(HttpURLConnection connection) throws IOException {
+    try (InputStream input = connection.getInputStream()) {
+      return InputStreams.readString(input, UTF_8);
+    }
+  }
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright (C) 2013 all@code-story.net
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package net.codestory.http.transport;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.*;
+import java.net.*;
+import java.time.*;
+import java.util.concurrent.*;
+
+import net.codestory.http.*;
+
+import org.junit.*;
+
+public class SimpleTransportTest {
+  ExecutorService executor = Executors.newSingleThreadExecutor();
+
+  @After
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void complete_requests_started_before_a_graceful_stop() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    WebServer server = new WebServer(new SimpleTransport(), routes -> routes.get("/slow", () -> {
+      started.countDown();
+      sleep(300);
+      return "DONE";
+    })).startOnRandomPort();
+
+    Future<Integer> status = executor.submit(() -> open(server.port(), "/slow").getResponseCode());
+    started.await();
+
+    int aborted = server.stopGracefully(Duration.ofSeconds(5));
+
+    assertThat(aborted).isZero();
+    assertThat(status.get()).isEqualTo(200);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void fail_on_options_it_cannot_apply() {
+    new WebServer(new SimpleTransport(), routes -> routes.get("/", "Hello")).start(0, new ConnectorOptions().withMaxRequestsPerConnection(100));
+  }
+
+  private static HttpURLConnection open(int port, String path) throws IOException {
+    return (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}